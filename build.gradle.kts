@@ -80,6 +80,25 @@ dependencies {
     //testCompile("ch.qos.logback:logback-classic:${versions["logback"]}")
 }
 
+// Optional classes which require Java 11, such as the JDK http transport.
+// These are compiled with --release 11 into the same jar and only loaded if used explicitly.
+val java11: SourceSet by sourceSets.creating {
+    java.srcDir("src/main/java11")
+    compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+}
+
+sourceSets["test"].apply {
+    compileClasspath += java11.output
+    runtimeClasspath += java11.output
+}
+
+// Tests of the Java 11 classes, these are compiled with --release 11 and run by the java11Test task
+val java11Test: SourceSet by sourceSets.creating {
+    java.srcDir("src/test/java11")
+    compileClasspath += sourceSets["test"].output + sourceSets["test"].compileClasspath
+    runtimeClasspath += sourceSets["test"].output + sourceSets["test"].runtimeClasspath
+}
+
 fun getProjectProperty(name: String) = project.properties[name] as? String
 
 val javadoc: Javadoc by tasks
@@ -123,6 +142,7 @@ val javadocJar = tasks.create("javadocJar", Jar::class.java) {
 val sourcesJar = tasks.create("sourcesJar", Jar::class.java) {
     dependsOn(sources)
     from(sources.destinationDir)
+    from("src/main/java11")
     archiveClassifier.set("sources")
 }
 
@@ -132,7 +152,7 @@ tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
     if (JavaVersion.current().isJava9Compatible) doFirst {
         arguments += "--release"
-        arguments += "8"
+        arguments += if (name == "compileJava11Java" || name == "compileJava11TestJava") "11" else "8"
     }
     doFirst {
         options.compilerArgs = arguments
@@ -145,18 +165,29 @@ compileJava.apply {
     dependsOn(sources)
 }
 
+jar.from(java11.output)
+
 configure<JavaPluginExtension> {
     sourceCompatibility = JavaVersion.VERSION_1_8
     targetCompatibility = JavaVersion.VERSION_1_8
 }
 
 val test: Test by tasks
+val java11TestTask = tasks.create("java11Test", Test::class.java) {
+    group = "verification"
+    description = "Runs the tests of the Java 11 classes"
+    testClassesDirs = java11Test.output.classesDirs
+    classpath = java11Test.runtimeClasspath
+    onlyIf { JavaVersion.current().isJava11Compatible }
+}
+
 val build: Task by tasks
 build.apply {
     dependsOn(javadocJar)
     dependsOn(sourcesJar)
     dependsOn(jar)
     dependsOn(test)
+    dependsOn(java11TestTask)
 }
 
 test.apply {
@@ -165,6 +196,22 @@ test.apply {
     }
 }
 
+// Runs the load generator against the local discord emulator, pass arguments with --args="webhooks messages ..."
+tasks.create("loadTest", JavaExec::class.java) {
+    group = "verification"
+    description = "Reports throughput, latency and 429 rate against a local discord emulator"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("root.load.LoadGenerator")
+}
+
+// Measures the request queue throughput with 16 producer threads
+tasks.create("queueBenchmark", JavaExec::class.java) {
+    group = "verification"
+    description = "Measures the request queue throughput with concurrent producers"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("root.load.QueueBenchmark")
+}
+
 // Generate pom file for maven central
 
 fun generatePom(): MavenPom.() -> Unit {
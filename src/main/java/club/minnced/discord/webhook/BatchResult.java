@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package club.minnced.discord.webhook;
+
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Aggregated result of a batch operation such as {@link WebhookClient#deleteAll(long...)}.
+ * <br>Each message is tracked by its index in {@link #getIds()}.
+ *
+ * <p>The requests of a batch are executed sequentially, in the order of the ids.
+ * A failure only affects the status of its own id, the remaining ids are still processed.
+ *
+ * @see WebhookClient#deleteAll(long...)
+ * @see WebhookClient#editAll(java.util.Map)
+ */
+public class BatchResult {
+    private static final Object SUCCESS = new Object(); // successful result without message
+
+    private final long[] ids;
+    private final AtomicReferenceArray<Object> results;
+    private final AtomicInteger successes = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final CompletableFuture<BatchResult> completion = new CompletableFuture<>();
+
+    BatchResult(@NotNull long[] ids) {
+        this.ids = ids;
+        this.results = new AtomicReferenceArray<>(ids.length);
+        if (ids.length == 0)
+            completion.complete(this);
+    }
+
+    /**
+     * The amount of messages in this batch
+     *
+     * @return The amount of messages
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Whether all messages of this batch have been processed.
+     *
+     * @return True, if the batch is done
+     */
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * Future which is completed once all messages of this batch have been processed.
+     * <br>This future is never completed exceptionally, failures are tracked per message instead.
+     *
+     * @return {@link CompletableFuture} completed with this result
+     */
+    @NotNull
+    public CompletableFuture<BatchResult> whenDone() {
+        return completion;
+    }
+
+    /**
+     * The message ids of this batch, in execution order.
+     *
+     * @return Copy of the message ids
+     */
+    @NotNull
+    public long[] getIds() {
+        return ids.clone();
+    }
+
+    /**
+     * The message id at the specified index.
+     *
+     * @param  index
+     *         The index
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of bounds
+     *
+     * @return The message id
+     */
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * The amount of messages which were processed successfully so far.
+     *
+     * @return The amount of successful messages
+     */
+    public int getSuccessCount() {
+        return successes.get();
+    }
+
+    /**
+     * The amount of messages which failed so far.
+     *
+     * @return The amount of failed messages
+     */
+    public int getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Whether the message at the specified index was processed successfully.
+     *
+     * @param  index
+     *         The index
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of bounds
+     *
+     * @return True, if the request for this message succeeded
+     */
+    public boolean isSuccess(int index) {
+        Object result = results.get(index);
+        return result != null && !(result instanceof Throwable);
+    }
+
+    /**
+     * The updated message at the specified index.
+     * <br>This is null for deletes, pending or failed messages, and if the client does not {@link WebhookClient#isWait() wait} for messages.
+     *
+     * @param  index
+     *         The index
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of bounds
+     *
+     * @return Possibly-null message
+     */
+    @Nullable
+    public ReadonlyMessage getMessage(int index) {
+        Object result = results.get(index);
+        return result instanceof ReadonlyMessage ? (ReadonlyMessage) result : null;
+    }
+
+    /**
+     * The failure of the message at the specified index.
+     *
+     * @param  index
+     *         The index
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of bounds
+     *
+     * @return The failure, or null if the message did not fail (yet)
+     */
+    @Nullable
+    public Throwable getFailure(int index) {
+        Object result = results.get(index);
+        return result instanceof Throwable ? (Throwable) result : null;
+    }
+
+    /**
+     * The ids of all messages which failed so far.
+     *
+     * @return The failed message ids, in execution order
+     */
+    @NotNull
+    public long[] getFailedIds() {
+        long[] failed = new long[failures.get()];
+        int j = 0;
+        for (int i = 0; i < ids.length && j < failed.length; i++) {
+            if (results.get(i) instanceof Throwable)
+                failed[j++] = ids[i];
+        }
+        return j == failed.length ? failed : Arrays.copyOf(failed, j);
+    }
+
+    void complete(int index, @Nullable ReadonlyMessage message) {
+        if (results.compareAndSet(index, null, message == null ? SUCCESS : message)) {
+            successes.incrementAndGet();
+            checkDone();
+        }
+    }
+
+    void fail(int index, @NotNull Throwable error) {
+        if (results.compareAndSet(index, null, error)) {
+            failures.incrementAndGet();
+            checkDone();
+        }
+    }
+
+    private void checkDone() {
+        if (successes.get() + failures.get() == ids.length)
+            completion.complete(this);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook;
+
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated result of a {@link WebhookCluster} broadcast or multicast.
+ * <br>Each target is tracked by its index, the targets and futures are in the same order.
+ *
+ * <p>Completions of the individual targets only update their own slot, so tracking
+ * a large broadcast does not introduce contention between the threads completing the futures.
+ *
+ * @see WebhookCluster#broadcastWithResult(club.minnced.discord.webhook.send.WebhookMessage)
+ * @see WebhookCluster#multicastWithResult(java.util.function.Predicate, club.minnced.discord.webhook.send.WebhookMessage)
+ */
+public class BroadcastResult {
+    private final List<WebhookClient> targets;
+    private final List<CompletableFuture<ReadonlyMessage>> futures;
+    private final AtomicLongArray latencies;
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger pending;
+    private final CompletableFuture<BroadcastResult> completion = new CompletableFuture<>();
+
+    BroadcastResult(@NotNull List<WebhookClient> targets, @NotNull List<CompletableFuture<ReadonlyMessage>> futures, long startNanos) {
+        this.targets = Collections.unmodifiableList(targets);
+        this.futures = Collections.unmodifiableList(futures);
+        this.latencies = new AtomicLongArray(futures.size());
+        this.pending = new AtomicInteger(futures.size());
+        if (futures.isEmpty()) {
+            completion.complete(this);
+            return;
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            final int index = i;
+            futures.get(i).whenComplete((message, error) -> {
+                latencies.set(index, Math.max(1, System.nanoTime() - startNanos));
+                if (error == null)
+                    successes.increment();
+                else
+                    failures.increment();
+                if (pending.decrementAndGet() == 0)
+                    completion.complete(this);
+            });
+        }
+    }
+
+    /**
+     * The amount of targeted webhooks
+     *
+     * @return The amount of targets
+     */
+    public int size() {
+        return targets.size();
+    }
+
+    /**
+     * Whether all targets have completed, either successfully or exceptionally.
+     *
+     * @return True, if all targets are done
+     */
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * Future which is completed once all targets are done.
+     * <br>This future is never completed exceptionally, failures are tracked per target instead.
+     *
+     * @return {@link CompletableFuture} completed with this result
+     */
+    @NotNull
+    public CompletableFuture<BroadcastResult> whenDone() {
+        return completion;
+    }
+
+    /**
+     * The targeted webhook clients, in the same order as {@link #getFutures()}.
+     *
+     * @return Unmodifiable list of targets
+     */
+    @NotNull
+    public List<WebhookClient> getTargets() {
+        return targets;
+    }
+
+    /**
+     * The futures for each target, in the same order as {@link #getTargets()}.
+     *
+     * @return Unmodifiable list of futures
+     */
+    @NotNull
+    public List<CompletableFuture<ReadonlyMessage>> getFutures() {
+        return futures;
+    }
+
+    /**
+     * The amount of targets which completed successfully so far.
+     *
+     * @return The amount of successful targets
+     */
+    public int getSuccessCount() {
+        return successes.intValue();
+    }
+
+    /**
+     * The amount of targets which failed so far.
+     *
+     * @return The amount of failed targets
+     */
+    public int getFailureCount() {
+        return failures.intValue();
+    }
+
+    /**
+     * The webhook client at the specified index.
+     *
+     * @param  index
+     *         The target index
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of bounds
+     *
+     * @return The target client
+     */
+    @NotNull
+    public WebhookClient getTarget(int index) {
+        return targets.get(index);
+    }
+
+    /**
+     * The message received by the target at the specified index.
+     * <br>This is null if the target has not completed yet, failed, or does not {@link WebhookClient#isWait() wait} for messages.
+     *
+     * @param  index
+     *         The target index
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of bounds
+     *
+     * @return Possibly-null message
+     */
+    @Nullable
+    public ReadonlyMessage getMessage(int index) {
+        CompletableFuture<ReadonlyMessage> future = futures.get(index);
+        if (!future.isDone() || future.isCompletedExceptionally())
+            return null;
+        return future.join();
+    }
+
+    /**
+     * The failure of the target at the specified index.
+     *
+     * @param  index
+     *         The target index
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of bounds
+     *
+     * @return The failure, or null if the target did not fail (yet)
+     */
+    @Nullable
+    public Throwable getFailure(int index) {
+        CompletableFuture<ReadonlyMessage> future = futures.get(index);
+        if (!future.isCompletedExceptionally())
+            return null;
+        try {
+            future.join();
+            return null;
+        }
+        catch (CompletionException ex) {
+            return ex.getCause() == null ? ex : ex.getCause();
+        }
+        catch (Throwable ex) { // cancellation
+            return ex;
+        }
+    }
+
+    /**
+     * The time it took for the target at the specified index to complete,
+     * measured from the start of the broadcast.
+     *
+     * @param  index
+     *         The target index
+     * @param  unit
+     *         The time unit to convert to
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the index is out of bounds
+     *
+     * @return The latency in the provided unit, or -1 if the target has not completed yet
+     */
+    public long getLatency(int index, @NotNull TimeUnit unit) {
+        long nanos = latencies.get(index);
+        return nanos == 0 ? -1 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -27,7 +27,7 @@ import org.json.JSONTokener;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.zip.GZIPInputStream;
@@ -45,8 +45,6 @@ public class IOUtil { //TODO: test json
     /** Empty byte-array, used for {@link #readAllBytes(java.io.InputStream)} */
     public static final byte[] EMPTY_BYTES = new byte[0];
 
-    private static final CompletableFuture[] EMPTY_FUTURES = new CompletableFuture[0];
-
     /**
      * Reads all bytes from an {@link java.io.InputStream}
      *
@@ -116,6 +114,8 @@ public class IOUtil { //TODO: test json
 
     /**
      * Converts a list of futures in a future of a list.
+     * <br>The resulting list has the same order as the provided futures,
+     * regardless of the order in which they complete.
      *
      * @param list
      *         The list of futures to flatten
@@ -125,20 +125,23 @@ public class IOUtil { //TODO: test json
      * @return A future that will be completed with the resulting list
      */
     @NotNull
+    @SuppressWarnings("unchecked")
     public static <T> CompletableFuture<List<T>> flipFuture(@NotNull List<CompletableFuture<T>> list) {
-        List<T> result = new ArrayList<>(list.size());
-        List<CompletableFuture<Void>> updatedStages = new ArrayList<>(list.size());
-
-        list.stream()
-            .map(it -> it.thenAccept(result::add))
-            .forEach(updatedStages::add);
+        final int size = list.size();
+        // Each stage only writes its own slot, completion of allOf(...) publishes the writes
+        final Object[] result = new Object[size];
+        final CompletableFuture<?>[] updatedStages = new CompletableFuture[size];
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            updatedStages[i] = list.get(i).thenAccept(value -> result[index] = value);
+        }
 
-        CompletableFuture<Void> tracker = CompletableFuture.allOf(updatedStages.toArray(EMPTY_FUTURES));
         CompletableFuture<List<T>> future = new CompletableFuture<>();
-
-        tracker.thenRun(() -> future.complete(result)).exceptionally((e) -> {
-            future.completeExceptionally(e);
-            return null;
+        CompletableFuture.allOf(updatedStages).whenComplete((ignored, error) -> {
+            if (error != null)
+                future.completeExceptionally(error);
+            else
+                future.complete((List<T>) Arrays.asList(result));
         });
 
         return future;
@@ -20,11 +20,19 @@ import club.minnced.discord.webhook.exception.HttpException;
 import club.minnced.discord.webhook.receive.EntityFactory;
 import club.minnced.discord.webhook.receive.ReadonlyMessage;
 import club.minnced.discord.webhook.send.AllowedMentions;
+import club.minnced.discord.webhook.send.AttachmentProcessor;
+import club.minnced.discord.webhook.send.MessageSplitter;
 import club.minnced.discord.webhook.send.WebhookEmbed;
 import club.minnced.discord.webhook.send.WebhookMessage;
 import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.OkHttpTransport;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import club.minnced.discord.webhook.util.HttpClients;
+import club.minnced.discord.webhook.util.RetryPolicy;
 import club.minnced.discord.webhook.util.ThreadPools;
+import club.minnced.discord.webhook.util.WebhookClock;
 import club.minnced.discord.webhook.util.WebhookErrorHandler;
+import club.minnced.discord.webhook.util.WebhookEventListener;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import okhttp3.Response;
@@ -40,8 +48,18 @@ import javax.annotation.Nonnegative;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
 import java.util.regex.Matcher;
 
 /**
@@ -56,6 +74,7 @@ public class WebhookClient implements AutoCloseable {
     /** User-Agent used for REST requests */
     public static final String USER_AGENT = "Webhook(https://github.com/MinnDevelopment/discord-webhooks, " + LibraryInfo.VERSION + ")";
     private static final Logger LOG = LoggerFactory.getLogger(WebhookClient.class);
+    private static final int UNKNOWN_WEBHOOK = 10015;
     private static WebhookErrorHandler DEFAULT_ERROR_HANDLER = WebhookErrorHandler.DEFAULT;
 
     protected final WebhookClient parent;
@@ -63,46 +82,86 @@ public class WebhookClient implements AutoCloseable {
     protected final String url;
     protected final long id;
     protected final long threadId;
-    protected final OkHttpClient client;
+    protected final OkHttpClient client; // null if the transport is not an OkHttpTransport
+    protected final WebhookTransport transport;
     protected final ScheduledExecutorService pool;
+    private final AtomicBoolean poolReleased = new AtomicBoolean(); // the pool is only shut down or released once
+    protected final WebhookClock clock;
     protected final Bucket bucket;
-    protected final BlockingQueue<Request> queue;
+    protected final RetryBudget retryBudget;
+    protected final RequestQueue queue;
     protected final boolean parseMessage;
     protected final AllowedMentions allowedMentions;
     protected long defaultTimeout;
-    protected volatile boolean isQueued;
     protected boolean isShutdown;
     protected WebhookErrorHandler errorHandler = DEFAULT_ERROR_HANDLER;
+    protected RetryPolicy retryPolicy = RetryPolicy.NONE;
+    protected WebhookEventListener eventListener; // null if no events are used
+    protected AttachmentProcessor attachmentProcessor; // null if attachments are uploaded as is
+    // Scheduling state of the queue drain, only the drain which moves the state to RUNNING may execute requests
+    private static final int IDLE = 0, SCHEDULED = 1, RUNNING = 2, BACKOFF = 3;
+    private final AtomicInteger drainState = new AtomicInteger(IDLE);
+    private long backoffNanos; // requested by the running drain, applied once it stops
+    private boolean isBackingOff; // handed over to the next drain through the drain state
+    private CompletableFuture<?> parkedOn; // preparation of the head request, the drain resumes once it completes
+    private Request inFlight; // head request which stays claimed while its exchange is in flight
+    private CompletableFuture<Response> pendingResponse; // response of the in-flight request, handled by the next drain
+    // Only used by the root client, forks share its state
+    private volatile HttpException deathCause;
+    private final List<Runnable> deathListeners = new CopyOnWriteArrayList<>();
+    // Clients created by onThread, weakly held so forks of unused threads can be collected
+    private final ConcurrentMap<Long, ForkReference> forks = new ConcurrentHashMap<>();
+    private final ReferenceQueue<WebhookClient> collectedForks = new ReferenceQueue<>();
 
     protected WebhookClient(
             final long id, final String token, final boolean parseMessage,
             final OkHttpClient client, final ScheduledExecutorService pool, AllowedMentions mentions,
             final long threadId) {
-        this.client = client;
+        this(id, token, parseMessage, new OkHttpTransport(client), pool, mentions, threadId);
+    }
+
+    protected WebhookClient(
+            final long id, final String token, final boolean parseMessage,
+            final WebhookTransport transport, final ScheduledExecutorService pool, AllowedMentions mentions,
+            final long threadId) {
+        this(id, token, parseMessage, transport, pool, mentions, threadId, WebhookClock.SYSTEM);
+    }
+
+    protected WebhookClient(
+            final long id, final String token, final boolean parseMessage,
+            final WebhookTransport transport, final ScheduledExecutorService pool, AllowedMentions mentions,
+            final long threadId, final WebhookClock clock) {
+        this.transport = transport;
+        this.client = transport instanceof OkHttpTransport ? ((OkHttpTransport) transport).getClient() : null;
         this.id = id;
         this.threadId = threadId;
         this.parseMessage = parseMessage;
         this.url = String.format(Locale.ROOT, WEBHOOK_URL, Long.toUnsignedString(id), token);
         this.pool = pool;
+        if (pool instanceof ThreadPools.ShardPool && !((ThreadPools.ShardPool) pool).retain())
+            poolReleased.set(true); // the shard is already shut down
+        this.clock = clock;
         this.bucket = new Bucket();
-        this.queue = new LinkedBlockingQueue<>();
-        this.allowedMentions = mentions;
+        this.retryBudget = new RetryBudget();
+        this.queue = new RequestQueue();
+        this.allowedMentions = mentions == null ? null : mentions.snapshot();
         this.parent = null;
-        this.isQueued = false;
     }
 
     protected WebhookClient(final WebhookClient parent, final long threadId) {
         this.client = parent.client;
+        this.transport = parent.transport;
         this.id = parent.id;
         this.threadId = threadId;
         this.parseMessage = parent.parseMessage;
         this.url = parent.url;
         this.parent = parent;
         this.pool = parent.pool;
+        this.clock = parent.clock;
         this.bucket = parent.bucket;
+        this.retryBudget = parent.retryBudget;
         this.queue = parent.queue;
         this.allowedMentions = parent.allowedMentions;
-        this.isQueued = false;
     }
 
     /**
@@ -139,7 +198,7 @@ public class WebhookClient implements AutoCloseable {
     public static WebhookClient withId(long id, @NotNull String token) {
         Objects.requireNonNull(token, "Token");
         ScheduledExecutorService pool = ThreadPools.getDefaultPool(id, null, false);
-        return new WebhookClient(id, token, true, new OkHttpClient(), pool, AllowedMentions.all(), 0);
+        return new WebhookClient(id, token, true, HttpClients.getDefaultClient(), pool, AllowedMentions.all(), 0);
     }
 
     /**
@@ -173,15 +232,55 @@ public class WebhookClient implements AutoCloseable {
      *
      * <p>The returned webhook client inherits all the settings (including the thread pool) from this client instance.
      * If either of the clients is shutdown/closed, the other instance will no longer send any messages.
+     * The messages to each thread are queued separately and sent round-robin within the rate-limit of the webhook,
+     * so a busy thread does not delay the messages to other threads.
+     *
+     * <p>The wrappers are cached, calling this repeatedly with the same thread id returns the same instance
+     * for as long as it is referenced elsewhere. To send single messages to a thread, {@link #send(long, WebhookMessage)}
+     * does not need a wrapper at all.
      *
      * @param  threadId
      *         The target thread id, or 0 to send directly to the parent channel
      *
-     * @return A new webhook client instance which targets the specified thread
+     * @return A webhook client instance which targets the specified thread
      */
     @NotNull
     public WebhookClient onThread(final long threadId) {
-        return new WebhookClient(this, threadId);
+        return fork(threadId, id -> new WebhookClient(this, id));
+    }
+
+    /**
+     * Returns the cached fork of this client for the provided thread, or creates it with the provided factory.
+     * <br>Subclasses use this to implement {@link #onThread(long)} with their own type.
+     *
+     * @param  threadId
+     *         The target thread id
+     * @param  factory
+     *         Creates the fork with this client as parent, only called if no fork is cached
+     * @param  <T>
+     *         The type of the forks, must be the same for all calls on this client
+     *
+     * @return The fork
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    protected <T extends WebhookClient> T fork(final long threadId, @NotNull LongFunction<T> factory) {
+        Reference<? extends WebhookClient> collected;
+        while ((collected = collectedForks.poll()) != null) {
+            ForkReference ref = (ForkReference) collected;
+            forks.remove(ref.threadId, ref);
+        }
+
+        for (;;) {
+            final ForkReference ref = forks.get(threadId);
+            final WebhookClient cached = ref == null ? null : ref.get();
+            if (cached != null)
+                return (T) cached;
+            final T fork = factory.apply(threadId);
+            final ForkReference created = new ForkReference(threadId, fork, collectedForks);
+            if (ref == null ? forks.putIfAbsent(threadId, created) == null : forks.replace(threadId, ref, created))
+                return fork;
+        }
     }
 
     /**
@@ -193,6 +292,26 @@ public class WebhookClient implements AutoCloseable {
         return id;
     }
 
+    /**
+     * The {@link WebhookTransport} used to execute the requests of this client.
+     *
+     * @return The transport
+     */
+    @NotNull
+    public WebhookTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * The {@link WebhookClock} used for rate-limits and request deadlines of this client.
+     *
+     * @return The clock
+     */
+    @NotNull
+    public WebhookClock getClock() {
+        return clock;
+    }
+
     /**
      * The target thread id this webhook client uses.
      *
@@ -232,12 +351,58 @@ public class WebhookClient implements AutoCloseable {
         return isShutdown;
     }
 
+    /**
+     * Whether this webhook has been deleted or its token is invalid.
+     * <br>A client becomes dead once discord responds with 401 Unauthorized or 404 Unknown Webhook.
+     * All queued and future requests of a dead client, and clients sharing its queue through {@link #onThread(long)},
+     * fail with the {@link HttpException} of that response without being executed.
+     *
+     * <p>Dead clients can be removed from a {@link WebhookCluster} automatically,
+     * see {@link WebhookCluster#setEvictDeadWebhooks(boolean)}.
+     *
+     * @return True, if this webhook is dead
+     */
+    public boolean isDead() {
+        return root().deathCause != null;
+    }
+
+    /**
+     * The amount of requests currently queued for this webhook, including the request which is currently executed.
+     * <br>Clients created by {@link #onThread(long)} share the queue with their parent.
+     *
+     * @return The queue size
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Whether the rate-limit of this webhook is currently exhausted.
+     * <br>Requests queued while rate-limited are only executed after {@link #getRetryAfter()}.
+     *
+     * @return True, if this webhook is rate-limited
+     */
+    public boolean isRateLimited() {
+        return bucket.isRateLimit();
+    }
+
+    /**
+     * The time in milliseconds until the rate-limit of this webhook resets.
+     *
+     * @return The milliseconds until the reset, or a value {@code <= 0} if the reset has already passed
+     */
+    public long getRetryAfter() {
+        return bucket.retryAfter();
+    }
+
     /**
      * Configure a default timeout to use for requests.
      * <br>The {@link CompletableFuture} returned by the various send methods will be completed exceptionally with a {@link TimeoutException} when the timeout expires.
      * By default, no timeout is used.
      *
      * <p>Note that this timeout is independent of the timeouts configured in {@link OkHttpClient} and will only prevent queued requests from being executed.
+     * To abort a request which is already executed, {@link CompletableFuture#cancel(boolean) cancel} its future instead.
+     * Queued requests are removed from the queue as soon as their timeout expires, measured by the {@link #getClock() clock} of this client.
      *
      * @param  millis
      *         The timeout in milliseconds, or 0 for no timeout
@@ -273,6 +438,96 @@ public class WebhookClient implements AutoCloseable {
         return this;
     }
 
+    /**
+     * Configures the {@link RetryPolicy} used for failed requests.
+     * <br>Retried requests keep their position in the queue, failures are only passed to the
+     * {@link #setErrorHandler(WebhookErrorHandler) error handler} once no retry is left.
+     * By default, this uses {@link RetryPolicy#NONE}.
+     *
+     * <p>Clients created by {@link #onThread(long)} share the queue with their parent and use the policy of the parent.
+     *
+     * @param  policy
+     *         The retry policy
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return The current WebhookClient instance
+     */
+    @NotNull
+    public WebhookClient setRetryPolicy(@NotNull RetryPolicy policy) {
+        this.retryPolicy = Objects.requireNonNull(policy, "Retry Policy");
+        if (parent == null)
+            retryBudget.reset(policy);
+        return this;
+    }
+
+    /**
+     * The current retry policy configured by {@link #setRetryPolicy(RetryPolicy)}.
+     *
+     * @return The retry policy
+     */
+    @NotNull
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Configures the {@link WebhookEventListener} which receives the lifecycle events of the requests.
+     * <br>By default, no events are created.
+     *
+     * <p>Clients created by {@link #onThread(long)} are executed by their parent and use the listener of the parent.
+     *
+     * @param  listener
+     *         The event listener, or null to disable events
+     *
+     * @return The current WebhookClient instance
+     */
+    @NotNull
+    public WebhookClient setEventListener(@Nullable WebhookEventListener listener) {
+        this.eventListener = listener;
+        return this;
+    }
+
+    /**
+     * The current event listener configured by {@link #setEventListener(WebhookEventListener)}.
+     *
+     * @return The event listener, or null if none is configured
+     */
+    @Nullable
+    public WebhookEventListener getEventListener() {
+        return eventListener;
+    }
+
+    /**
+     * Configures the {@link AttachmentProcessor} which prepares attachments before they are uploaded.
+     * <br>By default, attachments are uploaded as is.
+     *
+     * <p>Messages with attachments keep their position in the queue while the processor runs on a shared worker pool,
+     * the queue only waits for them once they reach the head.
+     * Clients created by {@link #onThread(long)} use the processor of the parent.
+     *
+     * @param  processor
+     *         The attachment processor, or null to upload attachments as is
+     *
+     * @return The current WebhookClient instance
+     */
+    @NotNull
+    public WebhookClient setAttachmentProcessor(@Nullable AttachmentProcessor processor) {
+        this.attachmentProcessor = processor;
+        return this;
+    }
+
+    /**
+     * The current attachment processor configured by {@link #setAttachmentProcessor(AttachmentProcessor)}.
+     *
+     * @return The attachment processor, or null if none is configured
+     */
+    @Nullable
+    public AttachmentProcessor getAttachmentProcessor() {
+        return attachmentProcessor;
+    }
+
     /**
      * The current timeout configured by {@link #setTimeout(long)}.
      * <br>If no timeout was configured, this returns 0.
@@ -301,7 +556,155 @@ public class WebhookClient implements AutoCloseable {
     @NotNull
     public CompletableFuture<ReadonlyMessage> send(@NotNull WebhookMessage message) {
         Objects.requireNonNull(message, "WebhookMessage");
-        return execute(message.getBody());
+        return execute(message, null, RequestType.SEND, threadId);
+    }
+
+    /**
+     * Sends the provided {@link club.minnced.discord.webhook.send.WebhookMessage}
+     * to the specified thread of the webhook channel.
+     * <br>This is equivalent to {@code onThread(threadId).send(message)}, without creating a client for the thread.
+     * The returned future receives {@code null} if {@link club.minnced.discord.webhook.WebhookClientBuilder#setWait(boolean)}
+     * was set to false.
+     *
+     * <p><b>This will override the default {@link AllowedMentions} of this client!</b>
+     *
+     * @param  threadId
+     *         The target thread id, or 0 to send directly to the webhook channel
+     * @param  message
+     *         The message to send
+     *
+     * @return {@link java.util.concurrent.CompletableFuture}
+     *
+     * @see    #isWait()
+     */
+    @NotNull
+    public CompletableFuture<ReadonlyMessage> send(long threadId, @NotNull WebhookMessage message) {
+        Objects.requireNonNull(message, "WebhookMessage");
+        return execute(message, null, RequestType.SEND, threadId);
+    }
+
+    /**
+     * Sends all provided messages in order, as one adjacent sequence.
+     * <br>The messages are enqueued as a single entry, other messages sent to this webhook or thread
+     * are never placed between them. The returned future receives a list of {@code null} if
+     * {@link club.minnced.discord.webhook.WebhookClientBuilder#setWait(boolean)} was set to false.
+     *
+     * <p>If a message fails, the remaining messages are not sent and the future is completed exceptionally.
+     *
+     * <p><b>This will override the default {@link AllowedMentions} of this client!</b>
+     *
+     * @param  messages
+     *         The messages to send
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return {@link java.util.concurrent.CompletableFuture} of the sent messages, in the same order
+     *
+     * @see    #isWait()
+     */
+    @NotNull
+    public CompletableFuture<List<ReadonlyMessage>> sendAll(@NotNull List<WebhookMessage> messages) {
+        Objects.requireNonNull(messages, "Messages");
+        final AttachmentProcessor processor = root().attachmentProcessor;
+        RequestBody[] bodies = new RequestBody[messages.size()];
+        boolean hasFiles = false;
+        for (int i = 0; i < bodies.length; i++) {
+            WebhookMessage message = Objects.requireNonNull(messages.get(i), "WebhookMessage");
+            hasFiles |= message.isFile();
+            if (processor == null || !message.isFile())
+                bodies[i] = message.getBody();
+        }
+        checkShutdown();
+        CompletableFuture<List<ReadonlyMessage>> callback = new CompletableFuture<>();
+        if (bodies.length == 0) {
+            callback.complete(Collections.emptyList());
+            return callback;
+        }
+
+        SequenceRequest req = new SequenceRequest(callback, bodies, url + getQuery());
+        req.threadId = threadId;
+        if (processor != null && hasFiles) {
+            List<WebhookMessage> copy = new ArrayList<>(messages);
+            req.preparation = CompletableFuture.supplyAsync(() -> {
+                RequestBody[] prepared = new RequestBody[copy.size()];
+                for (int i = 0; i < prepared.length; i++) {
+                    if (copy.get(i).isFile())
+                        prepared[i] = process(processor, copy.get(i)).getBody();
+                }
+                return prepared;
+            }, ThreadPools.getAttachmentPool()).thenAccept(prepared -> {
+                for (int i = 0; i < prepared.length; i++) {
+                    if (prepared[i] != null)
+                        bodies[i] = prepared[i];
+                }
+            });
+        }
+        setDeadline(req);
+        callback.whenComplete((message, error) -> {
+            if (error instanceof CancellationException)
+                cancel(req);
+        });
+        root().submit(req);
+        return callback;
+    }
+
+    /**
+     * Sends the provided content, split into as many messages as needed.
+     * <br>The content is split on line boundaries with {@link MessageSplitter} and the parts are sent with {@link #sendAll(List)}.
+     * The returned future receives a list of {@code null} if
+     * {@link club.minnced.discord.webhook.WebhookClientBuilder#setWait(boolean)} was set to false.
+     *
+     * @param  content
+     *         The content to send, of any length
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     * @throws IllegalArgumentException
+     *         If the content is blank
+     *
+     * @return {@link java.util.concurrent.CompletableFuture} of the sent messages, in order
+     *
+     * @see    #isWait()
+     */
+    @NotNull
+    public CompletableFuture<List<ReadonlyMessage>> sendSplit(@NotNull String content) {
+        return sendSplit(content, Collections.emptyList());
+    }
+
+    /**
+     * Sends the provided content and embeds, split into as many messages as needed.
+     * <br>The content is split on line boundaries and the embeds are grouped with {@link MessageSplitter},
+     * the parts are sent with {@link #sendAll(List)}.
+     * The returned future receives a list of {@code null} if
+     * {@link club.minnced.discord.webhook.WebhookClientBuilder#setWait(boolean)} was set to false.
+     *
+     * @param  content
+     *         The content to send, of any length
+     * @param  embeds
+     *         The embeds to send, of any amount
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     * @throws IllegalArgumentException
+     *         If neither content nor embeds are provided
+     *
+     * @return {@link java.util.concurrent.CompletableFuture} of the sent messages, in order
+     *
+     * @see    #isWait()
+     */
+    @NotNull
+    public CompletableFuture<List<ReadonlyMessage>> sendSplit(@NotNull String content, @NotNull Collection<WebhookEmbed> embeds) {
+        List<WebhookMessageBuilder> builders = MessageSplitter.split(content, embeds);
+        if (builders.isEmpty())
+            throw new IllegalArgumentException("Cannot send an empty message");
+        List<WebhookMessage> messages = new ArrayList<>(builders.size());
+        for (WebhookMessageBuilder builder : builders) {
+            if (allowedMentions != null)
+                builder.setAllowedMentions(allowedMentions);
+            messages.add(builder.build());
+        }
+        return sendAll(messages);
     }
 
     /**
@@ -474,7 +877,7 @@ public class WebhookClient implements AutoCloseable {
     @NotNull
     public CompletableFuture<ReadonlyMessage> edit(long messageId, @NotNull WebhookMessage message) {
         Objects.requireNonNull(message, "WebhookMessage");
-        return execute(message.getBody(), Long.toUnsignedString(messageId), RequestType.EDIT);
+        return execute(message, Long.toUnsignedString(messageId), RequestType.EDIT, threadId);
     }
 
     /**
@@ -565,7 +968,7 @@ public class WebhookClient implements AutoCloseable {
     @NotNull
     public CompletableFuture<ReadonlyMessage> edit(@NotNull String messageId, @NotNull WebhookMessage message) {
         Objects.requireNonNull(message, "WebhookMessage");
-        return execute(message.getBody(), messageId, RequestType.EDIT);
+        return execute(message, messageId, RequestType.EDIT, threadId);
     }
 
     /**
@@ -665,6 +1068,89 @@ public class WebhookClient implements AutoCloseable {
         return execute(null, messageId, RequestType.DELETE).thenApply(v -> null);
     }
 
+    /**
+     * Deletes all messages with the provided IDs.
+     *
+     * <p>The deletes are enqueued as a single batch, which executes one request per message in order
+     * and backs off whenever the rate-limit is exhausted.
+     * Requests sent to this webhook after the batch are only executed once the batch is done.
+     *
+     * @param  messageIds
+     *         The target message ids
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return {@link BatchResult} tracking the status of each message id
+     */
+    @NotNull
+    public BatchResult deleteAll(@NotNull long... messageIds) {
+        Objects.requireNonNull(messageIds, "Message IDs");
+        return executeBatch(messageIds.clone(), null, RequestType.DELETE);
+    }
+
+    /**
+     * Edits all provided messages, in the iteration order of the map.
+     *
+     * <p>The edits are enqueued as a single batch, which executes one request per message in order
+     * and backs off whenever the rate-limit is exhausted.
+     * Requests sent to this webhook after the batch are only executed once the batch is done.
+     *
+     * <p>Attachments are prepared by the {@link #setAttachmentProcessor(AttachmentProcessor) attachment processor}
+     * before the first edit is executed, if they cannot be prepared all edits of the batch fail.
+     *
+     * <p><b>This will override the default {@link AllowedMentions} of this client!</b>
+     *
+     * @param  messages
+     *         Map of target message ids to the updated messages
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return {@link BatchResult} tracking the status and updated message of each message id
+     *
+     * @see    #isWait()
+     */
+    @NotNull
+    public BatchResult editAll(@NotNull Map<Long, WebhookMessage> messages) {
+        Objects.requireNonNull(messages, "Messages");
+        final AttachmentProcessor processor = root().attachmentProcessor;
+        long[] ids = new long[messages.size()];
+        RequestBody[] bodies = new RequestBody[ids.length];
+        WebhookMessage[] files = null; // messages which are prepared by the processor
+        int i = 0;
+        for (Map.Entry<Long, WebhookMessage> entry : messages.entrySet()) {
+            Objects.requireNonNull(entry.getKey(), "Message ID");
+            WebhookMessage message = Objects.requireNonNull(entry.getValue(), "WebhookMessage");
+            ids[i] = entry.getKey();
+            if (processor == null || !message.isFile()) {
+                bodies[i++] = message.getBody();
+                continue;
+            }
+            if (files == null)
+                files = new WebhookMessage[ids.length];
+            files[i++] = message;
+        }
+        if (files == null)
+            return executeBatch(ids, bodies, RequestType.EDIT, null);
+
+        final WebhookMessage[] prepare = files;
+        CompletableFuture<?> preparation = CompletableFuture.supplyAsync(() -> {
+            RequestBody[] prepared = new RequestBody[prepare.length];
+            for (int j = 0; j < prepared.length; j++) {
+                if (prepare[j] != null)
+                    prepared[j] = process(processor, prepare[j]).getBody();
+            }
+            return prepared;
+        }, ThreadPools.getAttachmentPool()).thenAccept(prepared -> {
+            for (int j = 0; j < prepared.length; j++) {
+                if (prepared[j] != null)
+                    bodies[j] = prepared[j];
+            }
+        });
+        return executeBatch(ids, bodies, RequestType.EDIT, preparation);
+    }
+
     /**
      * Get the message with the provided ID.
      * <br>Only messages sent by this webhook can be retrieved.
@@ -706,6 +1192,9 @@ public class WebhookClient implements AutoCloseable {
     /**
      * Stops the thread pool used by this client.
      * <br>Any further requests to this client or clients with the same thread pool will be rejected.
+     *
+     * <p>Clients created by {@link #onThread(long)} share the thread pool and queue with their parent,
+     * closing either of them closes the parent and all of its thread clients.
      */
     @Override
     public void close() {
@@ -713,11 +1202,21 @@ public class WebhookClient implements AutoCloseable {
         if (parent != null)
             parent.close();
         if (queue.isEmpty())
+            releasePool();
+    }
+
+    // Shard pools are shared with other clients, the client only releases its reference once
+    private void releasePool() {
+        if (parent != null || !poolReleased.compareAndSet(false, true))
+            return;
+        if (pool instanceof ThreadPools.ShardPool)
+            ((ThreadPools.ShardPool) pool).release();
+        else
             pool.shutdown();
     }
 
     protected void checkShutdown() {
-        if (isShutdown)
+        if (isShutdown || parent != null && root().isShutdown)
             throw new RejectedExecutionException("Cannot send to closed client!");
     }
 
@@ -728,20 +1227,80 @@ public class WebhookClient implements AutoCloseable {
 
     @NotNull
     protected CompletableFuture<ReadonlyMessage> execute(RequestBody body, @Nullable String messageId, @NotNull RequestType type) {
+        return execute(body, messageId, type, threadId);
+    }
+
+    // Messages with attachments are enqueued right away and prepared by the processor on the attachment pool
+    @NotNull
+    protected CompletableFuture<ReadonlyMessage> execute(@NotNull WebhookMessage message, @Nullable String messageId, @NotNull RequestType type, long threadId) {
+        final AttachmentProcessor processor = root().attachmentProcessor;
+        if (processor == null || !message.isFile())
+            return execute(message.getBody(), messageId, type, threadId);
         checkShutdown();
         String endpoint = url;
         if (type != RequestType.SEND) {
             Objects.requireNonNull(messageId, "Message ID");
             endpoint += "/messages/" + messageId;
         }
+        CompletableFuture<RequestBody> body = CompletableFuture.supplyAsync(() -> process(processor, message).getBody(), ThreadPools.getAttachmentPool());
+        return queueRequest(endpoint + getQuery(threadId), type.method, null, body, threadId);
+    }
+
+    private static WebhookMessage process(AttachmentProcessor processor, WebhookMessage message) {
+        try {
+            return processor.process(message);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @NotNull
+    protected CompletableFuture<ReadonlyMessage> execute(RequestBody body, @Nullable String messageId, @NotNull RequestType type, long threadId) {
+        checkShutdown();
+        String endpoint = url;
+        if (type != RequestType.SEND) {
+            Objects.requireNonNull(messageId, "Message ID");
+            endpoint += "/messages/" + messageId;
+        }
+        return queueRequest(endpoint + getQuery(threadId), type.method, body, threadId);
+    }
+
+    @NotNull
+    protected String getQuery() {
+        return getQuery(threadId);
+    }
+
+    @NotNull
+    protected String getQuery(long threadId) {
         List<String> query = new ArrayList<>(2);
         if (parseMessage)
             query.add("wait=true");
         if (threadId != 0L)
             query.add("thread_id=" + Long.toUnsignedString(threadId));
-        if (!query.isEmpty())
-            endpoint += "?" + String.join("&", query);
-        return queueRequest(endpoint, type.method, body);
+        return query.isEmpty() ? "" : "?" + String.join("&", query);
+    }
+
+    @NotNull
+    protected BatchResult executeBatch(@NotNull long[] ids, @Nullable RequestBody[] bodies, @NotNull RequestType type) {
+        return executeBatch(ids, bodies, type, null);
+    }
+
+    // The preparation assigns the bodies of messages with attachments, the batch is executed once it completes
+    @NotNull
+    private BatchResult executeBatch(@NotNull long[] ids, @Nullable RequestBody[] bodies, @NotNull RequestType type, @Nullable CompletableFuture<?> preparation) {
+        checkShutdown();
+        BatchResult result = new BatchResult(ids);
+        if (ids.length == 0)
+            return result;
+        BatchRequest req = new BatchRequest(result, bodies, type.method, url + "/messages/", getQuery());
+        req.threadId = threadId;
+        req.preparation = preparation;
+        setDeadline(req);
+
+        // If this is a forked client, we need to use the parent rate limiting
+        root().submit(req);
+        return result;
     }
 
     @NotNull
@@ -759,100 +1318,517 @@ public class WebhookClient implements AutoCloseable {
 
     @NotNull
     protected CompletableFuture<ReadonlyMessage> queueRequest(String url, String method, RequestBody body) {
-        CompletableFuture<ReadonlyMessage> callback = new CompletableFuture<>();
-        Request req = new Request(callback, body, method, url);
-        if (defaultTimeout > 0)
-            req.deadline = System.currentTimeMillis() + defaultTimeout;
+        return queueRequest(url, method, body, threadId);
+    }
 
-        // If this is a forked client, we need to use the parent rate limiting
-        return parent == null ? schedule(callback, req) : parent.schedule(callback, req);
+    @NotNull
+    protected CompletableFuture<ReadonlyMessage> queueRequest(String url, String method, RequestBody body, long threadId) {
+        return queueRequest(url, method, body, null, threadId);
+    }
+
+    // The body is either ready, or assigned once the pending preparation completes
+    @NotNull
+    private CompletableFuture<ReadonlyMessage> queueRequest(String url, String method, RequestBody body, CompletableFuture<RequestBody> pending, long threadId) {
+        CompletableFuture<ReadonlyMessage> callback = new CompletableFuture<>();
+        SingleRequest req = new SingleRequest(callback, body, method, url);
+        if (pending != null)
+            req.preparation = pending.thenAccept(prepared -> req.body = prepared);
+        req.threadId = threadId;
+        setDeadline(req);
+        callback.whenComplete((message, error) -> {
+            if (error instanceof CancellationException)
+                cancel(req);
+        });
+
+        // If this is a forked client, we need to use the rate limiting of the root client which drains the shared queue
+        return parent == null ? schedule(callback, req) : root().schedule(callback, req);
     }
 
     @NotNull
     protected CompletableFuture<ReadonlyMessage> schedule(@NotNull CompletableFuture<ReadonlyMessage> callback, @NotNull Request req) {
-        enqueuePair(req);
-        if (!isQueued)
-            backoffQueue();
-        isQueued = true;
+        submit(req);
         return callback;
     }
 
+    private void setDeadline(Request req) {
+        if (defaultTimeout > 0) {
+            req.timed = true;
+            req.deadline = clock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(defaultTimeout);
+        }
+    }
+
+    private void submit(Request req) {
+        final HttpException death = root().deathCause;
+        if (death != null) {
+            req.failAll(death);
+            return;
+        }
+        if (req.timed)
+            scheduleTimeout(req, req.deadline - clock.nanoTime());
+        retryBudget.deposit(retryPolicy, req.getMessageCount());
+        enqueuePair(req);
+        final WebhookEventListener listener = eventListener;
+        if (listener != null)
+            listener.onEnqueue(this, req, clock.nanoTime());
+        signalDrain();
+    }
+
+    // Producers only schedule a drain if none is scheduled or running, the running drain picks up new requests
+    private void signalDrain() {
+        if (drainState.get() != IDLE || !drainState.compareAndSet(IDLE, SCHEDULED))
+            return;
+        long delay = bucket.isRateLimit() ? bucket.retryAfterNanos() : 0; // the reset only matters once the bucket is exhausted
+        if (delay > 0) {
+            backoff(delay);
+            return;
+        }
+        try {
+            pool.execute(this::drainQueue);
+        }
+        catch (RejectedExecutionException ex) {
+            rejectDrain(SCHEDULED, ex);
+        }
+    }
+
     @NotNull
     protected okhttp3.Request newRequest(Request request) {
-        return new okhttp3.Request.Builder()
-                .url(request.url)
-                .method(request.method, request.body)
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder()
+                .url(request.getUrl())
+                .method(request.getMethod(), request.getBody())
                 .header("accept-encoding", "gzip")
-                .header("user-agent", USER_AGENT)
-                .build();
+                .header("user-agent", USER_AGENT);
+        if (eventListener != null) // used by the OkHttpEventBridge to find the request
+            builder.tag(WebhookEventListener.RequestInfo.class, request);
+        return builder.build();
+    }
+
+    // Evicts the request from the queue once its deadline passes on the clock, unless it is currently executed
+    private void scheduleTimeout(Request req, long delayNanos) {
+        req.timeoutTask = clock.schedule(ThreadPools.getTimeoutPool(), () -> {
+            long remaining = req.deadline - clock.nanoTime();
+            if (req.isFinished())
+                return;
+            if (remaining > 0) // a custom clock ran the task early
+                scheduleTimeout(req, remaining);
+            else if (req.evict()) {
+                req.discard();
+                queue.remove(req);
+                TimeoutException error = new TimeoutException();
+                emitComplete(req, error);
+                req.failAll(error);
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Unlinks a cancelled request right away, or aborts the call if it is currently executed
+    private void cancel(Request req) {
+        if (req.evict()) {
+            req.cancelTimeout();
+            req.discard();
+            queue.remove(req);
+            emitComplete(req, new CancellationException());
+        }
+        else if (!req.isFinished()) {
+            WebhookTransport.Exchange exchange = req.exchange;
+            if (exchange != null)
+                exchange.cancel();
+        }
+    }
+
+    private void finish(Request req) {
+        req.finish();
+        queue.remove(req);
     }
 
+    private void emitComplete(Request req, Throwable error) {
+        final WebhookEventListener listener = eventListener;
+        if (listener != null)
+            listener.onComplete(this, req, error, clock.nanoTime());
+    }
+
+    // Only called by the running drain, which stops and reschedules itself after the rate-limit
     protected void backoffQueue() {
-        long delay = bucket.retryAfter();
+        long delay = bucket.retryAfterNanos();
         if (delay > 0)
-            LOG.debug("Backing off queue for {}", delay);
-        pool.schedule(this::drainQueue, delay, TimeUnit.MILLISECONDS);
+            LOG.debug("Backing off queue for {} ms", TimeUnit.NANOSECONDS.toMillis(delay));
+        pauseQueue(delay);
+    }
+
+    private void pauseQueue(long delayNanos) {
+        backoffNanos = delayNanos;
     }
 
-    protected synchronized void drainQueue() {
-        boolean graceful = true;
-        while (!queue.isEmpty()) {
-            final Request pair = queue.peek();
-            graceful = executePair(pair);
-            if (!graceful)
-                break;
+    // Moves the owned drain state to BACKOFF, the next drain is only scheduled by this call
+    private void backoff(long delayNanos) {
+        final WebhookEventListener listener = eventListener;
+        if (listener != null && delayNanos > 0) {
+            isBackingOff = true;
+            listener.onBackoffStart(this, delayNanos, clock.nanoTime());
+        }
+        drainState.set(BACKOFF);
+        try {
+            clock.schedule(pool, this::drainQueue, delayNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (RejectedExecutionException ex) {
+            rejectDrain(BACKOFF, ex);
+        }
+    }
+
+    // Releases the drain thread while the head request is prepared, without emitting backoff events.
+    // The drain resumes once the preparation completes, the request is evicted, which discards the preparation,
+    // or its deadline passes, which the timeout cannot enforce while the drain holds the request.
+    private void park(Request head, CompletableFuture<?> preparation) {
+        parkedOn = null;
+        final CompletableFuture<Void> resume = new CompletableFuture<>();
+        drainState.set(BACKOFF);
+        preparation.whenComplete((r, e) -> resume.complete(null));
+        if (head.timed) {
+            Future<?> deadline = clock.schedule(ThreadPools.getTimeoutPool(), () -> resume.complete(null),
+                    Math.max(0, head.deadline - clock.nanoTime()), TimeUnit.NANOSECONDS);
+            resume.thenRun(() -> deadline.cancel(false));
+        }
+        resume.thenRun(this::resumeDrain);
+    }
+
+    // Releases the drain thread while the exchange of the head request is in flight, the next drain handles the response
+    private void await(CompletableFuture<Response> response) {
+        drainState.set(BACKOFF);
+        response.whenComplete((r, e) -> resumeDrain());
+    }
+
+    // Called by the attachment pool or the http client, the executor might have been shut down by its owner in the meantime
+    private void resumeDrain() {
+        try {
+            pool.execute(this::drainQueue);
+        }
+        catch (RejectedExecutionException ex) {
+            rejectDrain(BACKOFF, ex);
         }
-        isQueued = !graceful;
-        if (isShutdown && graceful)
-            pool.shutdown();
     }
 
-    private boolean enqueuePair(@Async.Schedule Request pair) {
-        return queue.add(pair);
+    // No drain can run on an executor which was shut down by its owner, the queue is failed instead of waiting forever.
+    // Later requests are failed by their own signal, since the state is reset.
+    private void rejectDrain(int from, RejectedExecutionException ex) {
+        if (!drainState.compareAndSet(from, RUNNING))
+            return;
+        LOG.error("Cannot drain the queue of webhook {}, the executor was shut down", Long.toUnsignedString(id));
+        if (isBackingOff) {
+            isBackingOff = false;
+            final WebhookEventListener listener = eventListener;
+            if (listener != null)
+                listener.onBackoffEnd(this, clock.nanoTime());
+        }
+        abandonExchange(ex);
+        failQueued(ex);
+        drainState.set(IDLE);
+        if (!queue.isEmpty()) // enqueued while the queue was failed
+            signalDrain();
+    }
+
+    protected void drainQueue() {
+        final int from = drainState.get();
+        if (from != SCHEDULED && from != BACKOFF || !drainState.compareAndSet(from, RUNNING))
+            return; // another drain owns the queue
+        if (isBackingOff) {
+            isBackingOff = false;
+            final WebhookEventListener listener = eventListener;
+            if (listener != null)
+                listener.onBackoffEnd(this, clock.nanoTime());
+        }
+        final Request awaited = inFlight;
+        if (awaited != null && !completeExchange(awaited)) {
+            suspend(awaited);
+            return;
+        }
+        do {
+            Request pair;
+            while ((pair = queue.peek()) != null) {
+                if (!executePair(pair)) {
+                    suspend(pair);
+                    return;
+                }
+            }
+            drainState.set(IDLE);
+            // a producer might have enqueued after the last peek and seen the drain as running
+        } while (!queue.isEmpty() && drainState.compareAndSet(IDLE, RUNNING));
+        if (isShutdown && queue.isEmpty())
+            releasePool();
+    }
+
+    // Stops the running drain, the next drain is scheduled once the head request can make progress
+    private void suspend(Request head) {
+        final CompletableFuture<Response> response = pendingResponse;
+        final CompletableFuture<?> preparation = parkedOn;
+        if (response != null)
+            await(response);
+        else if (preparation != null)
+            park(head, preparation);
+        else
+            backoff(backoffNanos);
+    }
+
+    private void enqueuePair(@Async.Schedule Request pair) {
+        queue.add(pair);
     }
 
     private boolean executePair(@Async.Execute Request req) {
-        if (req.future.isDone()) {
-            queue.poll();
+        if (!req.claim()) { // already evicted by its timeout or cancellation
+            queue.remove(req);
+            return true;
+        }
+        try {
+            return executeClaimed(req);
+        }
+        finally {
+            if (pendingResponse == null) // an exchange in flight keeps the request claimed until its response is handled
+                req.release();
+        }
+    }
+
+    private boolean completeExchange(Request req) {
+        final CompletableFuture<Response> response = pendingResponse;
+        inFlight = null;
+        pendingResponse = null;
+        try {
+            return handleResponse(req, response);
+        }
+        finally {
+            req.release();
+        }
+    }
+
+    // Fails the in-flight request if the drain cannot resume to handle its response
+    private void abandonExchange(Throwable cause) {
+        final Request req = inFlight;
+        if (req == null)
+            return;
+        final CompletableFuture<Response> response = pendingResponse;
+        inFlight = null;
+        pendingResponse = null;
+        response.thenAccept(Response::close);
+        req.exchange = null;
+        emitComplete(req, cause);
+        req.failAll(cause);
+        finish(req);
+    }
+
+    private boolean executeClaimed(Request req) {
+        if (req.isDone()) {
+            finish(req);
+            return true;
+        } else if (req.isExpired(clock.nanoTime())) {
+            TimeoutException error = new TimeoutException();
+            req.discard();
+            emitComplete(req, error);
+            req.failAll(error);
+            finish(req);
             return true;
-        } else if (req.deadline > 0 && req.deadline < System.currentTimeMillis()) {
-            req.future.completeExceptionally(new TimeoutException());
-            queue.poll();
+        } else if (root().deathCause != null) { // enqueued concurrently with the death
+            emitComplete(req, root().deathCause);
+            req.failAll(root().deathCause);
+            finish(req);
             return true;
+        } else if (req.preparation != null) {
+            final CompletableFuture<?> preparation = req.preparation;
+            if (!preparation.isDone()) {
+                parkedOn = preparation;
+                return false;
+            }
+            req.preparation = null;
+            final Throwable error = getPreparationFailure(preparation);
+            if (error != null) {
+                errorHandler.handle(this, "Failed to prepare webhook message attachments", error);
+                emitComplete(req, error);
+                req.failAll(error); // nothing of the request was executed yet
+                finish(req);
+                return true;
+            }
         }
 
+        final WebhookEventListener listener = eventListener;
+        if (listener != null)
+            listener.onDequeue(this, req, clock.nanoTime());
         final okhttp3.Request request = newRequest(req);
-        try (Response response = client.newCall(request).execute()) {
+        final WebhookTransport.Exchange exchange = transport.newExchange(request);
+        req.exchange = exchange;
+        if (req.isDone()) // cancelled while the request was built
+            exchange.cancel();
+        if (listener != null)
+            listener.onRequestStart(this, req, clock.nanoTime());
+        final CompletableFuture<Response> response = exchange.executeAsync();
+        if (!response.isDone()) {
+            inFlight = req;
+            pendingResponse = response;
+            return false;
+        }
+        return handleResponse(req, response);
+    }
+
+    private boolean handleResponse(Request req, CompletableFuture<Response> future) {
+        final WebhookEventListener listener = eventListener;
+        try (Response response = getResponse(future)) {
             bucket.update(response);
+            if (listener != null) // after the bucket update, so the listener can check the rate-limit
+                listener.onResponseHeaders(this, req, response.code(), clock.nanoTime());
             if (response.code() == Bucket.RATE_LIMIT_CODE) {
                 backoffQueue();
                 return false;
             }
             else if (!response.isSuccessful()) {
+                if (retryPolicy.isRetryable(response.code()) && retry(req, response.code()))
+                    return false;
                 final HttpException exception = failure(response);
                 errorHandler.handle(this, "Sending a webhook message failed with non-OK http response", exception);
-                queue.poll().future.completeExceptionally(exception);
+                emitComplete(req, exception);
+                if (isDeath(exception)) {
+                    die(req, exception);
+                }
+                else if (req.fail(exception)) {
+                    finish(req);
+                }
                 return true;
             }
             ReadonlyMessage message = null;
-            if (parseMessage && !"DELETE".equals(req.method)) {
+            if (parseMessage && !"DELETE".equals(req.getMethod())) {
                 InputStream body = IOUtil.getBody(response);
                 JSONObject json = IOUtil.toJSON(body);
                 message = EntityFactory.makeMessage(json);
+                if (listener != null)
+                    listener.onParseDone(this, req, clock.nanoTime());
             }
-            queue.poll().future.complete(message);
+            emitComplete(req, null);
+            if (req.complete(message))
+                finish(req);
             if (bucket.isRateLimit()) {
                 backoffQueue();
                 return false;
             }
         }
         catch (JSONException | IOException e) {
-            errorHandler.handle(this, "There was some error while sending a webhook message", e);
-            queue.poll().future.completeExceptionally(e);
+            if (e instanceof IOException && !req.isDone() && retryPolicy.isRetryIOException() && retry(req, e))
+                return false;
+            if (!req.isDone()) // cancelled calls fail with an IOException
+                errorHandler.handle(this, "There was some error while sending a webhook message", e);
+            emitComplete(req, e);
+            if (req.fail(e))
+                finish(req);
+        }
+        finally {
+            req.exchange = null;
         }
         return true;
     }
 
+    @NotNull
+    private static Response getResponse(CompletableFuture<Response> future) throws IOException {
+        try {
+            return future.join();
+        }
+        catch (CancellationException ex) {
+            throw new IOException("Canceled", ex);
+        }
+        catch (CompletionException ex) {
+            Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    @Nullable
+    private static Throwable getPreparationFailure(CompletableFuture<?> preparation) {
+        try {
+            preparation.join();
+            return null;
+        }
+        catch (CompletionException ex) {
+            Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+            return cause instanceof UncheckedIOException ? cause.getCause() : cause;
+        }
+        catch (CancellationException ex) {
+            return ex;
+        }
+    }
+
+    @NotNull
+    private WebhookClient root() {
+        WebhookClient root = this;
+        while (root.parent != null)
+            root = root.parent;
+        return root;
+    }
+
+    private static boolean isDeath(HttpException exception) {
+        if (exception.getCode() == 401)
+            return true;
+        if (exception.getCode() != 404)
+            return false;
+        try {
+            // Unknown Message or Unknown Channel are failures of a single request
+            return new JSONObject(exception.getBody()).optInt("code") == UNKNOWN_WEBHOOK;
+        }
+        catch (JSONException ex) {
+            return false;
+        }
+    }
+
+    // Fails the queue fast instead of spending a request on each entry, discord bans IPs with too many invalid requests
+    private void die(Request current, HttpException cause) {
+        final WebhookClient root = root();
+        root.deathCause = cause;
+        current.failAll(cause);
+        finish(current);
+        LOG.error("Webhook {} responded with {}, failing all queued requests", Long.toUnsignedString(id), cause.getCode());
+        failQueued(cause);
+        for (Runnable listener : root.deathListeners) {
+            if (root.deathListeners.remove(listener)) // each listener runs once
+                listener.run();
+        }
+    }
+
+    // Only called by the owner of the drain state
+    private void failQueued(Throwable cause) {
+        Request req;
+        while ((req = queue.peek()) != null) {
+            if (req.evict()) {
+                req.cancelTimeout();
+                req.discard();
+                queue.remove(req);
+                emitComplete(req, cause);
+                req.failAll(cause);
+            }
+            else { // already evicted by its timeout or cancellation
+                queue.remove(req);
+            }
+        }
+    }
+
+    // Used by WebhookCluster once a client is removed, so the listener does not keep the cluster reachable
+    void removeDeathListener(@NotNull Runnable listener) {
+        root().deathListeners.remove(listener);
+    }
+
+    // Used by WebhookCluster to evict dead clients, the listener runs immediately if this client is already dead
+    void addDeathListener(@NotNull Runnable listener) {
+        final WebhookClient root = root();
+        root.deathListeners.add(listener);
+        if (root.deathCause != null && root.deathListeners.remove(listener))
+            listener.run();
+    }
+
+    // Pauses the queue for the backoff, the request stays at the head and is executed again by the next drain
+    private boolean retry(Request req, Object reason) {
+        final RetryPolicy policy = retryPolicy;
+        if (req.retries + 1 >= policy.getMaxAttempts() || !retryBudget.withdraw())
+            return false;
+        final long delay = policy.getDelay(++req.retries);
+        LOG.warn("Retrying webhook request after {} ms due to {} (attempt {}/{})", delay, reason, req.retries + 1, policy.getMaxAttempts());
+        pauseQueue(TimeUnit.MILLISECONDS.toNanos(delay));
+        return true;
+    }
+
     enum RequestType {
         SEND("POST"), EDIT("PATCH"), DELETE("DELETE"), GET("GET");
 
@@ -867,23 +1843,71 @@ public class WebhookClient implements AutoCloseable {
         }
     }
 
+    // The state is packed into one word, so the rate-limit is checked and updated without locking:
+    // | reset time (40 bits, millis since the bucket was created) | remaining uses (12 bits) | limit (12 bits) |
     protected final class Bucket {
         public static final int RATE_LIMIT_CODE = 429;
-        public long resetTime;
-        public int remainingUses;
-        public int limit = Integer.MAX_VALUE;
+        private static final int USES_BITS = 12, RESET_SHIFT = 2 * USES_BITS;
+        private static final long USES_MASK = (1L << USES_BITS) - 1;
+        private static final long RESET_MASK = (1L << (64 - RESET_SHIFT)) - 1;
+
+        private final long epoch = clock.nanoTime(); // nanoseconds of the client clock
+        private final AtomicLong state = new AtomicLong(pack(0, 0, Integer.MAX_VALUE));
+
+        public boolean isRateLimit() {
+            for (;;) {
+                final long current = state.get();
+                final int remaining = remaining(current), limit = limit(current);
+                if (retryAfterNanos(current) > 0)
+                    return remaining <= 0;
+                final long refilled = pack(resetMillis(current), limit, limit);
+                if (refilled == current || state.compareAndSet(current, refilled))
+                    return limit <= 0;
+            }
+        }
+
+        public long retryAfter() {
+            long nanos = retryAfterNanos();
+            // round up, backing off for too short would only run into another 429
+            return nanos > 0 ? TimeUnit.NANOSECONDS.toMillis(nanos + 999_999) : TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        public long retryAfterNanos() {
+            return retryAfterNanos(state.get());
+        }
+
+        /**
+         * The time of the next reset in nanoseconds of the client clock
+         *
+         * @return The reset time
+         */
+        public long getResetTime() {
+            return epoch + TimeUnit.MILLISECONDS.toNanos(resetMillis(state.get()));
+        }
+
+        /**
+         * The remaining uses before the reset, as reported by the last response
+         *
+         * @return The remaining uses
+         */
+        public int getRemainingUses() {
+            return remaining(state.get());
+        }
 
-        public synchronized boolean isRateLimit() {
-            if (retryAfter() <= 0)
-                remainingUses = limit;
-            return remainingUses <= 0;
+        /**
+         * The limit of the bucket, {@link Integer#MAX_VALUE} until the first response
+         *
+         * @return The limit
+         */
+        public int getLimit() {
+            return limit(state.get());
         }
 
-        public synchronized long retryAfter() {
-            return resetTime - System.currentTimeMillis();
+        private long retryAfterNanos(long state) {
+            return epoch + TimeUnit.MILLISECONDS.toNanos(resetMillis(state)) - clock.nanoTime();
         }
 
-        private synchronized void handleRatelimit(Response response, long current) throws IOException {
+        private void handleRatelimit(Response response, long current) throws IOException {
             final String retryAfter = response.header("Retry-After");
             final String limitHeader = response.header("X-RateLimit-Limit", "5");
             long delay;
@@ -900,14 +1924,15 @@ public class WebhookClient implements AutoCloseable {
                 delay = Long.parseLong(retryAfter) * 1000;
             }
             LOG.error("Encountered 429, retrying after {} ms", delay);
-            resetTime = current + delay;
-            remainingUses = 0;
             //noinspection ConstantConditions
-            limit = Integer.parseInt(limitHeader);
+            final int limit = Integer.parseInt(limitHeader);
+            final long reset = toResetMillis(current + TimeUnit.MILLISECONDS.toNanos(delay));
+            // never shorten a backoff which was started concurrently by a client sharing this bucket
+            state.getAndUpdate(old -> pack(Math.max(reset, resetMillis(old)), 0, limit));
         }
 
-        private synchronized void update0(Response response) throws IOException {
-            final long current = System.currentTimeMillis();
+        private void update0(Response response) throws IOException {
+            final long current = clock.nanoTime();
             final boolean is429 = response.code() == RATE_LIMIT_CODE;
             final String remainingHeader = response.header("X-RateLimit-Remaining");
             final String limitHeader = response.header("X-RateLimit-Limit");
@@ -921,12 +1946,11 @@ public class WebhookClient implements AutoCloseable {
                           response.code(), response.headers());
                 return;
             }
-            remainingUses = Integer.parseInt(remainingHeader);
-            limit = Integer.parseInt(limitHeader);
+            final int remaining = Integer.parseInt(remainingHeader);
+            final int limit = Integer.parseInt(limitHeader);
 
             final long reset = (long) Math.ceil(Double.parseDouble(resetHeader)); // relative seconds
-            final long delay = reset * 1000;
-            resetTime = current + delay;
+            state.set(pack(toResetMillis(current + TimeUnit.SECONDS.toNanos(reset)), remaining, limit));
         }
 
         public void update(Response response) {
@@ -937,19 +1961,427 @@ public class WebhookClient implements AutoCloseable {
                 errorHandler.handle(WebhookClient.this, "Could not read http response", ex);
             }
         }
+
+        private long toResetMillis(long nanos) {
+            // round up, the bucket must not reset before discord does
+            return Math.min(RESET_MASK, Math.max(0, TimeUnit.NANOSECONDS.toMillis(nanos - epoch + 999_999)));
+        }
+
+        private long pack(long resetMillis, int remaining, int limit) {
+            return resetMillis << RESET_SHIFT
+                    | clamp(remaining) << USES_BITS
+                    | clamp(limit);
+        }
+
+        private long clamp(int uses) {
+            return Math.min(USES_MASK, Math.max(0, uses)); // limits above 4095 are treated as unlimited
+        }
+
+        private long resetMillis(long state) {
+            return state >>> RESET_SHIFT;
+        }
+
+        private int remaining(long state) {
+            return (int) (state >>> USES_BITS & USES_MASK);
+        }
+
+        private int limit(long state) {
+            int limit = (int) (state & USES_MASK);
+            return limit == USES_MASK ? Integer.MAX_VALUE : limit;
+        }
+    }
+
+    private abstract static class Request implements WebhookEventListener.RequestInfo {
+        private static final int QUEUED = 0, RUNNING = 1, EVICTED = 2, FINISHED = 3;
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        protected boolean timed;
+        protected long deadline; // nanoseconds of the client clock, only used if timed
+        protected volatile Future<?> timeoutTask;
+        protected volatile WebhookTransport.Exchange exchange; // only set while executed
+        protected int retries; // of the current message, only accessed by the drain
+        protected long threadId; // target thread, each thread has its own sub-queue
+        protected volatile CompletableFuture<?> preparation; // prepares the body before the request can be executed, null if ready
+
+        // Links of the RequestQueue, the node stays in the queue until the drain passes it after the removal
+        private static final AtomicIntegerFieldUpdater<Request> LINKED = AtomicIntegerFieldUpdater.newUpdater(Request.class, "linked");
+        volatile Request next;
+        volatile int linked;
+
+        @Override
+        public int getRetries() {
+            return retries;
+        }
+
+        boolean isExpired(long now) {
+            return timed && now - deadline >= 0;
+        }
+
+        boolean isFinished() {
+            return state.get() == FINISHED;
+        }
+
+        // The drain and the timeout or cancellation race for the request, only the winner may complete it
+        boolean claim() {
+            return state.compareAndSet(QUEUED, RUNNING);
+        }
+
+        boolean evict() {
+            return state.compareAndSet(QUEUED, EVICTED);
+        }
+
+        void release() {
+            state.compareAndSet(RUNNING, QUEUED);
+        }
+
+        void finish() {
+            state.set(FINISHED);
+            cancelTimeout();
+        }
+
+        void cancelTimeout() {
+            Future<?> task = timeoutTask;
+            if (task != null)
+                task.cancel(false);
+        }
+
+        // Drops the payload of an evicted request, the node itself stays in the queue until the drain passes it
+        void discard() {
+            final CompletableFuture<?> preparation = this.preparation;
+            this.preparation = null;
+            if (preparation != null)
+                preparation.cancel(false); // the prepared body is not assigned anymore
+            clearBodies();
+        }
+
+        abstract boolean isDone();
+        abstract String getUrl();
+        abstract RequestBody getBody();
+        abstract void clearBodies();
+
+        // These return true, if the request is finished and can be removed from the queue
+        abstract boolean complete(ReadonlyMessage message);
+        abstract boolean fail(Throwable error);
+
+        abstract void failAll(Throwable error);
     }
 
-    private static final class Request {
+    private static final class SingleRequest extends Request {
         private final CompletableFuture<ReadonlyMessage> future;
-        private final RequestBody body;
+        private RequestBody body; // set by the preparation, if any
         private final String method, url;
-        private long deadline;
 
-        public Request(CompletableFuture<ReadonlyMessage> future, RequestBody body, String method, String url) {
+        public SingleRequest(CompletableFuture<ReadonlyMessage> future, RequestBody body, String method, String url) {
             this.future = future;
             this.body = body;
             this.method = method;
             this.url = url;
         }
+
+        @Override
+        boolean isDone() {
+            return future.isDone();
+        }
+
+        @NotNull
+        @Override
+        public String getMethod() {
+            return method;
+        }
+
+        @Override
+        public int getMessageCount() {
+            return 1;
+        }
+
+        @Override
+        String getUrl() {
+            return url;
+        }
+
+        @Override
+        RequestBody getBody() {
+            return body;
+        }
+
+        @Override
+        void clearBodies() {
+            body = null;
+        }
+
+        @Override
+        boolean complete(ReadonlyMessage message) {
+            future.complete(message);
+            return true;
+        }
+
+        @Override
+        boolean fail(Throwable error) {
+            future.completeExceptionally(error);
+            return true;
+        }
+
+        @Override
+        void failAll(Throwable error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    // One queue entry for a sequence of new messages, which keeps them adjacent and stops at the first failure
+    private static final class SequenceRequest extends Request {
+        private final CompletableFuture<List<ReadonlyMessage>> future;
+        private final RequestBody[] bodies;
+        private final ReadonlyMessage[] messages;
+        private final String url;
+        private int index;
+
+        private SequenceRequest(CompletableFuture<List<ReadonlyMessage>> future, RequestBody[] bodies, String url) {
+            this.future = future;
+            this.bodies = bodies;
+            this.messages = new ReadonlyMessage[bodies.length];
+            this.url = url;
+        }
+
+        @Override
+        boolean isDone() {
+            return future.isDone();
+        }
+
+        @NotNull
+        @Override
+        public String getMethod() {
+            return "POST";
+        }
+
+        @Override
+        public int getMessageCount() {
+            return bodies.length;
+        }
+
+        @Override
+        String getUrl() {
+            return url;
+        }
+
+        @Override
+        RequestBody getBody() {
+            return bodies[index];
+        }
+
+        @Override
+        void clearBodies() {
+            Arrays.fill(bodies, null);
+        }
+
+        @Override
+        boolean complete(ReadonlyMessage message) {
+            messages[index++] = message;
+            retries = 0;
+            if (index < bodies.length)
+                return false;
+            future.complete(Collections.unmodifiableList(Arrays.asList(messages)));
+            return true;
+        }
+
+        @Override
+        boolean fail(Throwable error) {
+            future.completeExceptionally(error);
+            return true;
+        }
+
+        @Override
+        void failAll(Throwable error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    // One queue entry for all messages of a batch, the endpoint of each message is only built once it is executed
+    private static final class BatchRequest extends Request {
+        private final BatchResult result;
+        private final RequestBody[] bodies;
+        private final String method, baseUrl, query;
+        private int index;
+
+        private BatchRequest(BatchResult result, RequestBody[] bodies, String method, String baseUrl, String query) {
+            this.result = result;
+            this.bodies = bodies;
+            this.method = method;
+            this.baseUrl = baseUrl;
+            this.query = query;
+        }
+
+        @Override
+        boolean isDone() {
+            return result.isDone();
+        }
+
+        @NotNull
+        @Override
+        public String getMethod() {
+            return method;
+        }
+
+        @Override
+        public int getMessageCount() {
+            return result.size();
+        }
+
+        @Override
+        String getUrl() {
+            return baseUrl + Long.toUnsignedString(result.getId(index)) + query;
+        }
+
+        @Override
+        RequestBody getBody() {
+            return bodies == null ? null : bodies[index];
+        }
+
+        @Override
+        void clearBodies() {
+            if (bodies != null)
+                Arrays.fill(bodies, null);
+        }
+
+        @Override
+        boolean complete(ReadonlyMessage message) {
+            result.complete(index++, message);
+            retries = 0;
+            return index == result.size();
+        }
+
+        @Override
+        boolean fail(Throwable error) {
+            result.fail(index++, error);
+            retries = 0;
+            return index == result.size();
+        }
+
+        @Override
+        void failAll(Throwable error) {
+            while (index < result.size())
+                result.fail(index++, error);
+        }
+    }
+
+    // Each submitted request adds the ratio of the policy, each retry takes one token
+    protected static final class RetryBudget {
+        private double tokens, capacity;
+        private boolean enabled;
+
+        synchronized void reset(RetryPolicy policy) {
+            enabled = policy.getMaxAttempts() > 1;
+            capacity = Math.max(policy.getBudgetReserve(), 1);
+            tokens = policy.getBudgetReserve();
+        }
+
+        synchronized void deposit(RetryPolicy policy, int requests) {
+            if (enabled)
+                tokens = Math.min(capacity, tokens + policy.getBudgetRatio() * requests);
+        }
+
+        synchronized boolean withdraw() {
+            if (tokens < 1)
+                return false;
+            tokens--;
+            return true;
+        }
+    }
+
+    private static final class ForkReference extends WeakReference<WebhookClient> {
+        private final long threadId;
+
+        private ForkReference(long threadId, WebhookClient fork, ReferenceQueue<WebhookClient> queue) {
+            super(fork, queue);
+            this.threadId = threadId;
+        }
+    }
+
+    // Multi-producer single-consumer queue with a FIFO sub-queue per target thread.
+    // Producers add to a lock-free intrusive list, the requests are the nodes so enqueuing allocates nothing.
+    // The drain moves the added requests to the sub-queues and serves the heads of the sub-queues round-robin,
+    // so a busy thread does not delay the messages to other threads of the webhook.
+    // Any thread may add or remove requests, only the running drain may call peek.
+    // Removed requests are only marked and dropped once they reach the head of their sub-queue, which allows removing any request in O(1).
+    // Evicted requests discard their bodies first, so only the empty node is retained while the queue backs off.
+    protected static final class RequestQueue {
+        private final AtomicReference<Request> tail = new AtomicReference<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile Request head; // only written by the drain, or by the producer which adds to an empty queue
+
+        // Only accessed by the drain, the first sub-queue of the rotation is served next
+        private final Map<Long, ArrayDeque<Request>> threads = new HashMap<>();
+        private final ArrayDeque<ArrayDeque<Request>> rotation = new ArrayDeque<>();
+
+        public int size() {
+            return size.get();
+        }
+
+        public boolean isEmpty() {
+            return size.get() == 0;
+        }
+
+        Request peek() {
+            Request req;
+            while ((req = poll()) != null) {
+                ArrayDeque<Request> thread = threads.get(req.threadId);
+                if (thread == null) {
+                    thread = new ArrayDeque<>();
+                    threads.put(req.threadId, thread);
+                    rotation.addLast(thread);
+                }
+                thread.addLast(req);
+            }
+
+            ArrayDeque<Request> thread;
+            while ((thread = rotation.peekFirst()) != null) {
+                final Request first = thread.peekFirst();
+                if (first.linked == 1)
+                    return first;
+                // the head was completed or removed, the next thread takes its turn
+                thread.pollFirst();
+                rotation.pollFirst();
+                if (thread.isEmpty())
+                    threads.remove(first.threadId);
+                else
+                    rotation.addLast(thread);
+            }
+            return null;
+        }
+
+        void add(Request req) {
+            req.next = null;
+            req.linked = 1;
+            size.incrementAndGet();
+            final Request prev = tail.getAndSet(req);
+            if (prev == null)
+                head = req;
+            else
+                prev.next = req;
+        }
+
+        boolean remove(Request req) {
+            if (!Request.LINKED.compareAndSet(req, 1, 0))
+                return false;
+            size.decrementAndGet();
+            return true;
+        }
+
+        private Request poll() {
+            final Request first = head;
+            if (first == null)
+                return null;
+            Request next = first.next;
+            if (next == null) {
+                head = null; // before the tail is released, a producer adding to the empty queue sets the new head
+                if (tail.compareAndSet(first, null))
+                    return first;
+                // a producer swapped the tail but did not link its request yet
+                while ((next = first.next) == null)
+                    Thread.yield();
+            }
+            head = next;
+            first.next = null;
+            return first;
+        }
     }
 }
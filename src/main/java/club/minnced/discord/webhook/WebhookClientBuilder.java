@@ -20,7 +20,14 @@ import club.minnced.discord.webhook.external.D4JWebhookClient;
 import club.minnced.discord.webhook.external.JDAWebhookClient;
 import club.minnced.discord.webhook.external.JavacordWebhookClient;
 import club.minnced.discord.webhook.send.AllowedMentions;
+import club.minnced.discord.webhook.send.AttachmentProcessor;
+import club.minnced.discord.webhook.transport.OkHttpTransport;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import club.minnced.discord.webhook.util.HttpClients;
+import club.minnced.discord.webhook.util.RetryPolicy;
 import club.minnced.discord.webhook.util.ThreadPools;
+import club.minnced.discord.webhook.util.WebhookClock;
+import club.minnced.discord.webhook.util.WebhookEventListener;
 import okhttp3.OkHttpClient;
 import org.javacord.api.entity.webhook.IncomingWebhook;
 import org.jetbrains.annotations.NotNull;
@@ -50,6 +57,11 @@ public class WebhookClientBuilder { //TODO: tests
     protected long threadId;
     protected ScheduledExecutorService pool;
     protected OkHttpClient client;
+    protected WebhookTransport transport;
+    protected WebhookClock clock = WebhookClock.SYSTEM;
+    protected RetryPolicy retryPolicy = RetryPolicy.NONE;
+    protected WebhookEventListener eventListener;
+    protected AttachmentProcessor attachmentProcessor;
     protected ThreadFactory threadFactory;
     protected AllowedMentions allowedMentions = AllowedMentions.all();
     protected boolean isDaemon;
@@ -177,7 +189,8 @@ public class WebhookClientBuilder { //TODO: tests
     /**
      * The {@link okhttp3.OkHttpClient} that is used to execute
      * send requests in the resulting {@link club.minnced.discord.webhook.WebhookClient}.
-     * <br>It is usually not necessary to use multiple different clients in one application
+     * <br>It is usually not necessary to use multiple different clients in one application.
+     * If no client is configured, the shared {@link HttpClients#getDefaultClient()} is used.
      *
      * @param  client
      *         The http client to use
@@ -190,6 +203,93 @@ public class WebhookClientBuilder { //TODO: tests
         return this;
     }
 
+    /**
+     * The {@link WebhookTransport} that is used to execute
+     * requests in the resulting {@link club.minnced.discord.webhook.WebhookClient}.
+     * <br>If a transport is configured, the {@link #setHttpClient(OkHttpClient) http client} is not used.
+     * By default, requests are executed with an {@link OkHttpTransport}.
+     *
+     * @param  transport
+     *         The transport to use, or null to use the http client
+     *
+     * @return The current builder, for chaining convenience
+     */
+    @NotNull
+    public WebhookClientBuilder setTransport(@Nullable WebhookTransport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * The {@link WebhookClock} used for rate-limits and request deadlines
+     * in the resulting {@link club.minnced.discord.webhook.WebhookClient}.
+     * <br>By default, this uses {@link WebhookClock#SYSTEM}.
+     *
+     * @param  clock
+     *         The clock to use, or null to use the system clock
+     *
+     * @return The current builder, for chaining convenience
+     */
+    @NotNull
+    public WebhookClientBuilder setClock(@Nullable WebhookClock clock) {
+        this.clock = clock == null ? WebhookClock.SYSTEM : clock;
+        return this;
+    }
+
+    /**
+     * The {@link RetryPolicy} used for failed requests
+     * in the resulting {@link club.minnced.discord.webhook.WebhookClient}.
+     * <br>By default, this uses {@link RetryPolicy#NONE}.
+     *
+     * @param  policy
+     *         The retry policy, or null to disable retries
+     *
+     * @return The current builder, for chaining convenience
+     *
+     * @see    club.minnced.discord.webhook.WebhookClient#setRetryPolicy(RetryPolicy)
+     */
+    @NotNull
+    public WebhookClientBuilder setRetryPolicy(@Nullable RetryPolicy policy) {
+        this.retryPolicy = policy == null ? RetryPolicy.NONE : policy;
+        return this;
+    }
+
+    /**
+     * The {@link WebhookEventListener} which receives the request events
+     * of the resulting {@link club.minnced.discord.webhook.WebhookClient}.
+     * <br>By default, no events are created.
+     *
+     * @param  listener
+     *         The event listener, or null to disable events
+     *
+     * @return The current builder, for chaining convenience
+     *
+     * @see    club.minnced.discord.webhook.WebhookClient#setEventListener(WebhookEventListener)
+     */
+    @NotNull
+    public WebhookClientBuilder setEventListener(@Nullable WebhookEventListener listener) {
+        this.eventListener = listener;
+        return this;
+    }
+
+    /**
+     * The {@link AttachmentProcessor} which prepares the attachments of messages
+     * sent by the resulting {@link club.minnced.discord.webhook.WebhookClient}.
+     * <br>By default, attachments are uploaded as is.
+     *
+     * @param  processor
+     *         The attachment processor, or null to upload attachments as is
+     *
+     * @return The current builder, for chaining convenience
+     *
+     * @see    club.minnced.discord.webhook.WebhookClient#setAttachmentProcessor(AttachmentProcessor)
+     */
+    @NotNull
+    public WebhookClientBuilder setAttachmentProcessor(@Nullable AttachmentProcessor processor) {
+        this.attachmentProcessor = processor;
+        return this;
+    }
+
     /**
      * The {@link java.util.concurrent.ThreadFactory} that is used to initialize
      * the default {@link java.util.concurrent.ScheduledExecutorService} used if
@@ -276,9 +376,9 @@ public class WebhookClientBuilder { //TODO: tests
      */
     @NotNull
     public WebhookClient build() {
-        OkHttpClient client = this.client == null ? new OkHttpClient() : this.client;
+        WebhookTransport transport = getTransport();
         ScheduledExecutorService pool = this.pool != null ? this.pool : ThreadPools.getDefaultPool(id, threadFactory, isDaemon);
-        return new WebhookClient(id, token, parseMessage, client, pool, allowedMentions, threadId);
+        return configure(new WebhookClient(id, token, parseMessage, transport, pool, allowedMentions, threadId, clock));
     }
 
     /**
@@ -289,9 +389,9 @@ public class WebhookClientBuilder { //TODO: tests
      */
     @NotNull
     public JDAWebhookClient buildJDA() {
-        OkHttpClient client = this.client == null ? new OkHttpClient() : this.client;
+        WebhookTransport transport = getTransport();
         ScheduledExecutorService pool = this.pool != null ? this.pool : ThreadPools.getDefaultPool(id, threadFactory, isDaemon);
-        return new JDAWebhookClient(id, token, parseMessage, client, pool, allowedMentions, threadId);
+        return configure(new JDAWebhookClient(id, token, parseMessage, transport, pool, allowedMentions, threadId, clock));
     }
 
     /**
@@ -302,9 +402,9 @@ public class WebhookClientBuilder { //TODO: tests
      */
     @NotNull
     public D4JWebhookClient buildD4J() {
-        OkHttpClient client = this.client == null ? new OkHttpClient() : this.client;
+        WebhookTransport transport = getTransport();
         ScheduledExecutorService pool = this.pool != null ? this.pool : ThreadPools.getDefaultPool(id, threadFactory, isDaemon);
-        return new D4JWebhookClient(id, token, parseMessage, client, pool, allowedMentions, threadId);
+        return configure(new D4JWebhookClient(id, token, parseMessage, transport, pool, allowedMentions, threadId, clock));
     }
 
     /**
@@ -315,8 +415,23 @@ public class WebhookClientBuilder { //TODO: tests
      */
     @NotNull
     public JavacordWebhookClient buildJavacord() {
-        OkHttpClient client = this.client == null ? new OkHttpClient() : this.client;
+        WebhookTransport transport = getTransport();
         ScheduledExecutorService pool = this.pool != null ? this.pool : ThreadPools.getDefaultPool(id, threadFactory, isDaemon);
-        return new JavacordWebhookClient(id, token, parseMessage, client, pool, allowedMentions, threadId);
+        return configure(new JavacordWebhookClient(id, token, parseMessage, transport, pool, allowedMentions, threadId, clock));
+    }
+
+    @NotNull
+    private <T extends WebhookClient> T configure(@NotNull T client) {
+        client.setRetryPolicy(retryPolicy);
+        client.setEventListener(eventListener);
+        client.setAttachmentProcessor(attachmentProcessor);
+        return client;
+    }
+
+    @NotNull
+    private WebhookTransport getTransport() {
+        if (transport != null)
+            return transport;
+        return new OkHttpTransport(client == null ? HttpClients.getDefaultClient() : client);
     }
 }
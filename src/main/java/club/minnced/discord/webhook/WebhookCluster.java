@@ -20,6 +20,8 @@ import club.minnced.discord.webhook.receive.ReadonlyMessage;
 import club.minnced.discord.webhook.send.AllowedMentions;
 import club.minnced.discord.webhook.send.WebhookEmbed;
 import club.minnced.discord.webhook.send.WebhookMessage;
+import club.minnced.discord.webhook.util.ThreadPools;
+import club.minnced.discord.webhook.util.WebhookEventListener;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
 import org.jetbrains.annotations.NotNull;
@@ -28,6 +30,7 @@ import org.jetbrains.annotations.Nullable;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.Predicate;
@@ -44,15 +47,31 @@ import java.util.stream.Collectors;
  * <li>{@link #setDefaultExecutorService(java.util.concurrent.ScheduledExecutorService)}</li>
  * <li>{@link #setDefaultThreadFactory(java.util.concurrent.ThreadFactory)}</li>
  * <li>{@link #setDefaultDaemon(boolean)}</li>
+ * <li>{@link #setShardCount(int)}</li>
  * </ul>
+ *
+ * <p>The cluster is thread-safe, webhooks can be added and removed while broadcasts are in progress.
+ *
+ * <p>Webhooks are indexed by their id and by user-assigned tags.
+ * Tags can be used with {@link #multicast(String, WebhookMessage)} to target a subset of the cluster,
+ * such as all webhooks of one guild, without testing every registered client.
  */
 public class WebhookCluster implements AutoCloseable { //TODO: tests
-    protected final List<WebhookClient> webhooks;
+    /** Registered clients mapped to their tags */
+    protected final Map<WebhookClient, Set<String>> members;
+    protected final Map<Long, Set<WebhookClient>> idIndex = new ConcurrentHashMap<>();
+    protected final Map<String, Set<WebhookClient>> tagIndex = new ConcurrentHashMap<>();
+    /** Death listeners of the registered clients, removed with the client so it does not keep the cluster reachable */
+    protected final Map<WebhookClient, Runnable> deathListeners = new ConcurrentHashMap<>();
     protected OkHttpClient defaultHttpClient;
     protected ScheduledExecutorService defaultPool;
     protected ThreadFactory threadFactory;
     protected AllowedMentions allowedMentions = AllowedMentions.all();
     protected boolean isDaemon;
+    protected int shardCount;
+    protected volatile boolean evictDead;
+    protected WebhookEventListener eventListener;
+    protected ThreadPools.ShardPool[] shards;
 
     /**
      * Creates a new WebhookCluster with the provided clients
@@ -65,10 +84,8 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
      */
     public WebhookCluster(@NotNull Collection<? extends WebhookClient> initialClients) {
         Objects.requireNonNull(initialClients, "List");
-        webhooks = new ArrayList<>(initialClients.size());
-        for (WebhookClient client : initialClients) {
-            addWebhooks(client);
-        }
+        members = new ConcurrentHashMap<>(Math.max(16, initialClients.size()));
+        addWebhooks(new ArrayList<>(initialClients));
     }
 
     /**
@@ -82,10 +99,10 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
      * @throws java.lang.IllegalArgumentException
      *         If the capacity is illegal
      *
-     * @see    java.util.ArrayList#ArrayList(int)
+     * @see    java.util.concurrent.ConcurrentHashMap#ConcurrentHashMap(int)
      */
     public WebhookCluster(int initialCapacity) {
-        webhooks = new ArrayList<>(initialCapacity);
+        members = new ConcurrentHashMap<>(initialCapacity);
     }
 
     /**
@@ -93,7 +110,7 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
      * <br>This cluster will be empty.
      */
     public WebhookCluster() {
-        webhooks = new ArrayList<>();
+        members = new ConcurrentHashMap<>();
     }
 
     // Default builder values
@@ -180,6 +197,107 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
         return this;
     }
 
+    /**
+     * Configures the {@link WebhookEventListener} which receives the broadcast events of this cluster.
+     * <br>Clients built by this cluster use the same listener for their request events.
+     *
+     * @param  listener
+     *         The event listener, or null to disable events
+     *
+     * @return WebhookCluster instance for chaining convenience
+     *
+     * @see    club.minnced.discord.webhook.WebhookClientBuilder#setEventListener(WebhookEventListener)
+     */
+    @NotNull
+    public WebhookCluster setEventListener(@Nullable WebhookEventListener listener) {
+        this.eventListener = listener;
+        return this;
+    }
+
+    /**
+     * Configures whether {@link WebhookClient#isDead() dead} webhooks are removed from this cluster automatically.
+     * <br>Evicted clients are closed, they can no longer send any messages.
+     * This also applies to clients which are already dead when they are added.
+     *
+     * @param  evictDead
+     *         True, if dead webhooks should be evicted
+     *
+     * @return WebhookCluster instance for chaining convenience
+     */
+    @NotNull
+    public WebhookCluster setEvictDeadWebhooks(boolean evictDead) {
+        this.evictDead = evictDead;
+        if (evictDead)
+            closeIf(WebhookClient::isDead);
+        return this;
+    }
+
+    /**
+     * Configures the amount of shards used to build {@link club.minnced.discord.webhook.WebhookClient} instances.
+     * <br>Each shard is a single thread which drains the request queues of all its webhooks.
+     * Webhooks are assigned to shards by hashing their id, so requests to the same webhook always run on the same shard.
+     * Only the thread is shared, each webhook keeps its own queue and rate-limit bucket.
+     *
+     * <p>The shard thread does not wait for responses. A webhook suspends its queue while its request is in flight
+     * and the shard serves the other webhooks in the meantime, so a slow webhook does not hold up its shard.
+     * The concurrent requests are bounded by the http client, such as the per-host limit of the
+     * {@link okhttp3.Dispatcher Dispatcher} for the default {@link club.minnced.discord.webhook.transport.OkHttpTransport OkHttpTransport}.
+     * Custom transports which do not implement {@link club.minnced.discord.webhook.transport.WebhookTransport.Exchange#executeAsync() executeAsync}
+     * block the shard for the duration of each request.
+     *
+     * <p>This takes precedence over {@link #setDefaultExecutorService(ScheduledExecutorService)}.
+     * The shard threads use the {@link #setDefaultThreadFactory(ThreadFactory) default thread factory} if configured.
+     * Closing a single client does not stop its shard,
+     * a shard stops once the cluster is {@link #close() closed} and all clients built on it are closed.
+     *
+     * <p>A reasonable shard count is the number of available processors.
+     *
+     * @param  shardCount
+     *         The amount of shards, or 0 to disable sharding (default)
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the shard count is negative
+     * @throws java.lang.IllegalStateException
+     *         If the shards have already been started by building a webhook
+     *
+     * @return WebhookCluster instance for chaining convenience
+     */
+    @NotNull
+    public synchronized WebhookCluster setShardCount(int shardCount) {
+        if (shardCount < 0)
+            throw new IllegalArgumentException("Shard count may not be negative");
+        if (shards != null)
+            throw new IllegalStateException("Cannot change shard count after shards have been started");
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * The amount of shards configured by {@link #setShardCount(int)}.
+     *
+     * @return The amount of shards, or 0 if sharding is disabled
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * The shard a webhook with the provided id is assigned to.
+     *
+     * @param  id
+     *         The webhook id
+     *
+     * @return The shard id, or -1 if sharding is disabled
+     */
+    public int getShardId(long id) {
+        int count = shardCount;
+        if (count == 0)
+            return -1;
+        // snowflakes are mostly timestamp, mix in the high bits before reducing to the shard count
+        long hash = id ^ (id >>> 22) ^ (id >>> 42);
+        return (int) Long.remainderUnsigned(hash, count);
+    }
+
     // Webhook creation/add/remove
 
     /**
@@ -198,7 +316,33 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
      */
     @NotNull
     public WebhookCluster buildWebhook(long id, @NotNull String token) {
-        this.webhooks.add(newBuilder(id, token).build());
+        register(newBuilder(id, token).build(), Collections.emptyList());
+        return this;
+    }
+
+    /**
+     * Builds a {@link club.minnced.discord.webhook.WebhookClient} instance with the provided
+     * components and specified default configurations.
+     * <br>The client is registered with the provided tags.
+     *
+     * @param  id
+     *         The id of the webhook
+     * @param  token
+     *         The token of the webhook
+     * @param  tags
+     *         The tags to assign to the client
+     *
+     * @throws java.lang.NullPointerException
+     *         If the token or any of the tags is null
+     *
+     * @return WebhookCluster instance for chaining convenience
+     *
+     * @see    #multicast(String, WebhookMessage)
+     */
+    @NotNull
+    public WebhookCluster buildWebhook(long id, @NotNull String token, @NotNull String... tags) {
+        List<String> tagList = checkTags(tags);
+        register(newBuilder(id, token).build(), tagList);
         return this;
     }
 
@@ -220,10 +364,11 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
     @NotNull
     public WebhookClientBuilder newBuilder(long id, @NotNull String token) {
         WebhookClientBuilder builder = new WebhookClientBuilder(id, token);
-        builder.setExecutorService(defaultPool)
+        builder.setExecutorService(shardCount > 0 ? getShard(id) : defaultPool)
                .setHttpClient(defaultHttpClient)
                .setThreadFactory(threadFactory)
                .setAllowedMentions(allowedMentions)
+               .setEventListener(eventListener)
                .setDaemon(isDaemon);
         return builder;
     }
@@ -244,13 +389,7 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
     @NotNull
     public WebhookCluster addWebhooks(@NotNull WebhookClient... clients) {
         Objects.requireNonNull(clients, "Clients");
-        for (WebhookClient client : clients) {
-            Objects.requireNonNull(client, "Client");
-            if (client.isShutdown)
-                throw new IllegalArgumentException("One of the provided WebhookClients has been closed already!");
-            webhooks.add(client);
-        }
-        return this;
+        return addWebhooks(Arrays.asList(clients));
     }
 
     /**
@@ -273,8 +412,96 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
             Objects.requireNonNull(client, "Client");
             if (client.isShutdown)
                 throw new IllegalArgumentException("One of the provided WebhookClients has been closed already!");
-            webhooks.add(client);
         }
+        for (WebhookClient client : clients)
+            register(client, Collections.emptyList());
+        return this;
+    }
+
+    /**
+     * Adds the provided webhook to the cluster and assigns the provided tags.
+     * <br>If the client is already registered, the tags are added to its current tags.
+     *
+     * @param  client
+     *         The client to add
+     * @param  tags
+     *         The tags to assign to the client
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     * @throws java.lang.IllegalArgumentException
+     *         If the client is already shutdown
+     *
+     * @return WebhookCluster instance for chaining convenience
+     *
+     * @see    #multicast(String, WebhookMessage)
+     */
+    @NotNull
+    public WebhookCluster addWebhook(@NotNull WebhookClient client, @NotNull String... tags) {
+        Objects.requireNonNull(client, "Client");
+        List<String> tagList = checkTags(tags);
+        if (client.isShutdown)
+            throw new IllegalArgumentException("The provided WebhookClient has been closed already!");
+        register(client, tagList);
+        return this;
+    }
+
+    /**
+     * Assigns the provided tags to a registered webhook.
+     *
+     * @param  client
+     *         The registered client
+     * @param  tags
+     *         The tags to assign
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     * @throws java.lang.IllegalArgumentException
+     *         If the client is not registered in this cluster
+     *
+     * @return WebhookCluster instance for chaining convenience
+     */
+    @NotNull
+    public WebhookCluster tagWebhook(@NotNull WebhookClient client, @NotNull String... tags) {
+        Objects.requireNonNull(client, "Client");
+        List<String> tagList = checkTags(tags);
+        Set<String> current = members.computeIfPresent(client, (key, assigned) -> {
+            for (String tag : tagList) {
+                if (assigned.add(tag))
+                    addIndex(tagIndex, tag, key);
+            }
+            return assigned;
+        });
+        if (current == null)
+            throw new IllegalArgumentException("The provided WebhookClient is not part of this cluster");
+        return this;
+    }
+
+    /**
+     * Removes the provided tags from a registered webhook.
+     * <br>The webhook remains registered in the cluster.
+     *
+     * @param  client
+     *         The registered client
+     * @param  tags
+     *         The tags to remove
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return WebhookCluster instance for chaining convenience
+     */
+    @NotNull
+    public WebhookCluster untagWebhook(@NotNull WebhookClient client, @NotNull String... tags) {
+        Objects.requireNonNull(client, "Client");
+        List<String> tagList = checkTags(tags);
+        members.computeIfPresent(client, (key, assigned) -> {
+            for (String tag : tagList) {
+                if (assigned.remove(tag))
+                    removeIndex(tagIndex, tag, key);
+            }
+            return assigned;
+        });
         return this;
     }
 
@@ -292,8 +519,7 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
     @NotNull
     public WebhookCluster removeWebhooks(@NotNull WebhookClient... clients) {
         Objects.requireNonNull(clients, "Clients");
-        webhooks.removeAll(Arrays.asList(clients));
-        return this;
+        return removeWebhooks(Arrays.asList(clients));
     }
 
     /**
@@ -310,10 +536,30 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
     @NotNull
     public WebhookCluster removeWebhooks(@NotNull Collection<WebhookClient> clients) {
         Objects.requireNonNull(clients, "Clients");
-        webhooks.removeAll(clients);
+        for (WebhookClient client : clients)
+            unregister(client);
         return this;
     }
 
+    /**
+     * Removes all webhooks with the provided id from the cluster.
+     *
+     * @param  id
+     *         The id of the webhook
+     *
+     * @return {@link java.util.List} of the removed webhooks
+     */
+    @NotNull
+    public List<WebhookClient> removeWebhooksById(long id) {
+        List<WebhookClient> clients = getWebhooksById(id);
+        List<WebhookClient> removed = new ArrayList<>(clients.size());
+        for (WebhookClient client : clients) {
+            if (unregister(client))
+                removed.add(client);
+        }
+        return removed;
+    }
+
     /**
      * Removes webhooks from the cluster based on the specified filter.
      *
@@ -329,11 +575,10 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
     public List<WebhookClient> removeIf(@NotNull Predicate<WebhookClient> predicate) {
         Objects.requireNonNull(predicate, "Predicate");
         List<WebhookClient> clients = new ArrayList<>();
-        for (WebhookClient client : webhooks) {
-            if (predicate.test(client))
+        for (WebhookClient client : members.keySet()) {
+            if (predicate.test(client) && unregister(client))
                 clients.add(client);
         }
-        removeWebhooks(clients);
         return clients;
     }
 
@@ -352,23 +597,72 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
     public List<WebhookClient> closeIf(@NotNull Predicate<WebhookClient> predicate) {
         Objects.requireNonNull(predicate, "Filter");
         List<WebhookClient> clients = new ArrayList<>();
-        for (WebhookClient client : webhooks) {
-            if (predicate.test(client))
+        for (WebhookClient client : members.keySet()) {
+            if (predicate.test(client) && unregister(client))
                 clients.add(client);
         }
-        removeWebhooks(clients);
         clients.forEach(WebhookClient::close);
         return clients;
     }
 
     /**
-     * Unmodifiable list of currently registered clients
+     * Unmodifiable list of currently registered clients, in no particular order.
      *
      * @return List of clients
      */
     @NotNull
     public List<WebhookClient> getWebhooks() {
-        return Collections.unmodifiableList(new ArrayList<>(webhooks));
+        return Collections.unmodifiableList(new ArrayList<>(members.keySet()));
+    }
+
+    /**
+     * Unmodifiable list of currently registered clients with the provided webhook id.
+     * <br>This usually contains at most one client, unless clients for different threads
+     * of the same webhook are registered.
+     *
+     * @param  id
+     *         The webhook id
+     *
+     * @return List of clients, empty if none are registered for this id
+     */
+    @NotNull
+    public List<WebhookClient> getWebhooksById(long id) {
+        return snapshot(idIndex.get(id));
+    }
+
+    /**
+     * Unmodifiable list of currently registered clients with the provided tag.
+     *
+     * @param  tag
+     *         The tag
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return List of clients, empty if no client has this tag
+     */
+    @NotNull
+    public List<WebhookClient> getWebhooksByTag(@NotNull String tag) {
+        Objects.requireNonNull(tag, "Tag");
+        return snapshot(tagIndex.get(tag));
+    }
+
+    /**
+     * Unmodifiable set of tags assigned to the provided client.
+     *
+     * @param  client
+     *         The client
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return Set of tags, empty if the client has no tags or is not registered
+     */
+    @NotNull
+    public Set<String> getTags(@NotNull WebhookClient client) {
+        Objects.requireNonNull(client, "Client");
+        Set<String> tags = members.get(client);
+        return tags == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(tags));
     }
 
     // Broadcasting / Multicasting
@@ -392,15 +686,114 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
     public List<CompletableFuture<ReadonlyMessage>> multicast(@NotNull Predicate<WebhookClient> filter, @NotNull WebhookMessage message) {
         Objects.requireNonNull(filter, "Filter");
         Objects.requireNonNull(message, "Message");
-        final RequestBody body = message.getBody();
+        final long start = System.nanoTime();
+        final RequestBody body = message.isFile() ? null : message.getBody();
         final List<CompletableFuture<ReadonlyMessage>> callbacks = new ArrayList<>();
-        for (WebhookClient client : webhooks) {
+        for (WebhookClient client : members.keySet()) {
             if (filter.test(client))
-                callbacks.add(client.execute(body));
+                callbacks.add(body == null ? client.send(message) : client.execute(body));
         }
+        emitBroadcast(callbacks.size(), start);
         return callbacks;
     }
 
+    /**
+     * Sends a message to all clients with the provided tag.
+     * <br>Unlike {@link #multicast(Predicate, WebhookMessage)} this only visits the clients with the tag.
+     *
+     * <p><b>This will override the default {@link AllowedMentions} of the client!</b>
+     *
+     * @param  tag
+     *         The tag of the targeted clients
+     * @param  message
+     *         The message to send
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return List of futures for each client execution
+     *
+     * @see    #addWebhook(WebhookClient, String...)
+     * @see    #tagWebhook(WebhookClient, String...)
+     */
+    @NotNull
+    public List<CompletableFuture<ReadonlyMessage>> multicast(@NotNull String tag, @NotNull WebhookMessage message) {
+        Objects.requireNonNull(message, "Message");
+        return execute(getWebhooksByTag(tag), message);
+    }
+
+    /**
+     * Sends a message to all clients with the provided tag and tracks the result of each target.
+     *
+     * <p><b>This will override the default {@link AllowedMentions} of the client!</b>
+     *
+     * @param  tag
+     *         The tag of the targeted clients
+     * @param  message
+     *         The message to send
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return {@link BroadcastResult} tracking each client execution
+     */
+    @NotNull
+    public BroadcastResult multicastWithResult(@NotNull String tag, @NotNull WebhookMessage message) {
+        Objects.requireNonNull(message, "Message");
+        final long start = System.nanoTime();
+        final List<WebhookClient> targets = getWebhooksByTag(tag);
+        return new BroadcastResult(targets, execute(targets, message), start);
+    }
+
+    /**
+     * Sends a message to a filtered set of clients and tracks the result of each target.
+     *
+     * <p><b>This will override the default {@link AllowedMentions} of the client!</b>
+     *
+     * @param  filter
+     *         The filter to decide whether a client should be targeted
+     * @param  message
+     *         The message to send
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return {@link BroadcastResult} tracking each client execution
+     */
+    @NotNull
+    public BroadcastResult multicastWithResult(@NotNull Predicate<WebhookClient> filter, @NotNull WebhookMessage message) {
+        Objects.requireNonNull(filter, "Filter");
+        Objects.requireNonNull(message, "Message");
+        final long start = System.nanoTime();
+        final List<WebhookClient> targets = new ArrayList<>();
+        for (WebhookClient client : members.keySet()) {
+            if (filter.test(client))
+                targets.add(client);
+        }
+        return new BroadcastResult(targets, execute(targets, message), start);
+    }
+
+    /**
+     * Sends a message to all registered clients and tracks the result of each target.
+     *
+     * <p><b>This will override the default {@link AllowedMentions} of the client!</b>
+     *
+     * @param  message
+     *         The message to send
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return {@link BroadcastResult} tracking each client execution
+     */
+    @NotNull
+    public BroadcastResult broadcastWithResult(@NotNull WebhookMessage message) {
+        Objects.requireNonNull(message, "Message");
+        final long start = System.nanoTime();
+        final List<WebhookClient> targets = new ArrayList<>(members.keySet());
+        return new BroadcastResult(targets, execute(targets, message), start);
+    }
+
     /**
      * Sends a message to all registered clients.
      *
@@ -417,14 +810,7 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
     @NotNull
     public List<CompletableFuture<ReadonlyMessage>> broadcast(@NotNull WebhookMessage message) {
         Objects.requireNonNull(message, "Message");
-        RequestBody body = message.getBody();
-        final List<CompletableFuture<ReadonlyMessage>> callbacks = new ArrayList<>(webhooks.size());
-        for (WebhookClient webhook : webhooks) {
-            callbacks.add(webhook.execute(body));
-            if (message.isFile()) // for files we have to make new data sets
-                body = message.getBody();
-        }
-        return callbacks;
+        return execute(members.keySet(), message);
     }
 
     /**
@@ -461,9 +847,12 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
      */
     @NotNull
     public List<CompletableFuture<ReadonlyMessage>> broadcast(@NotNull Collection<WebhookEmbed> embeds) {
-        return webhooks.stream()
+        final long start = System.nanoTime();
+        final List<CompletableFuture<ReadonlyMessage>> callbacks = members.keySet().stream()
                 .map(w -> w.send(embeds))
                 .collect(Collectors.toList());
+        emitBroadcast(callbacks.size(), start);
+        return callbacks;
     }
 
     /**
@@ -482,9 +871,12 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
         Objects.requireNonNull(content, "Content");
         if (content.length() > 2000)
             throw new IllegalArgumentException("Content may not exceed 2000 characters!");
-        return webhooks.stream()
+        final long start = System.nanoTime();
+        final List<CompletableFuture<ReadonlyMessage>> callbacks = members.keySet().stream()
                 .map(w -> w.send(content))
                 .collect(Collectors.toList());
+        emitBroadcast(callbacks.size(), start);
+        return callbacks;
     }
 
     /**
@@ -575,19 +967,149 @@ public class WebhookCluster implements AutoCloseable { //TODO: tests
         Objects.requireNonNull(data, "Data");
         if (data.length > 10)
             throw new IllegalArgumentException("Provided data exceeds the maximum size of 8MB!");
-        return webhooks.stream()
+        final long start = System.nanoTime();
+        final List<CompletableFuture<ReadonlyMessage>> callbacks = members.keySet().stream()
                 .map(w -> w.send(data, fileName))
                 .collect(Collectors.toList());
+        emitBroadcast(callbacks.size(), start);
+        return callbacks;
     }
 
     /**
      * Performs cascade closing on current webhook clients,
      * all clients will be closed and removed after this returns.
      * <br>The cluster may still be used after calls to this method occurred.
+     *
+     * <p>If sharding is enabled, the shards are stopped once they finished the already queued requests
+     * and all clients built on them are closed.
+     * New shards are started if webhooks are built after this.
      */
     @Override
     public void close() {
-        webhooks.forEach(WebhookClient::close);
-        webhooks.clear();
+        // Only close the clients we removed, others might have been added concurrently
+        List<WebhookClient> clients = new ArrayList<>(members.size());
+        for (WebhookClient client : members.keySet()) {
+            if (unregister(client))
+                clients.add(client);
+        }
+        clients.forEach(WebhookClient::close);
+
+        ThreadPools.ShardPool[] shards;
+        synchronized (this) {
+            shards = this.shards;
+            this.shards = null;
+        }
+        if (shards != null) {
+            for (ThreadPools.ShardPool shard : shards)
+                shard.release();
+        }
+    }
+
+    @NotNull
+    protected synchronized ScheduledExecutorService getShard(long id) {
+        if (shards == null) {
+            shards = new ThreadPools.ShardPool[shardCount];
+            for (int i = 0; i < shardCount; i++)
+                shards[i] = ThreadPools.getShardPool(i, shardCount, threadFactory, isDaemon);
+        }
+        return shards[getShardId(id)];
+    }
+
+    // Index management, all updates of a client are serialized by the compute functions on its member entry
+
+    protected void register(@NotNull WebhookClient client, @NotNull Collection<String> tags) {
+        boolean[] added = { false };
+        members.compute(client, (key, assigned) -> {
+            if (assigned == null) {
+                assigned = ConcurrentHashMap.newKeySet();
+                addIndex(idIndex, key.getId(), key);
+                added[0] = true;
+            }
+            for (String tag : tags) {
+                if (assigned.add(tag))
+                    addIndex(tagIndex, tag, key);
+            }
+            return assigned;
+        });
+        if (added[0]) {
+            Runnable listener = () -> evictDead(client);
+            Runnable previous = deathListeners.put(client, listener);
+            if (previous != null) // left by a concurrent removal
+                client.removeDeathListener(previous);
+            client.addDeathListener(listener);
+            if (!members.containsKey(client) && deathListeners.remove(client, listener)) // removed concurrently
+                client.removeDeathListener(listener);
+        }
+    }
+
+    private void evictDead(@NotNull WebhookClient client) {
+        if (evictDead && unregister(client))
+            client.close();
+    }
+
+    protected boolean unregister(@NotNull WebhookClient client) {
+        boolean[] removed = { false };
+        members.computeIfPresent(client, (key, assigned) -> {
+            removeIndex(idIndex, key.getId(), key);
+            for (String tag : assigned)
+                removeIndex(tagIndex, tag, key);
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            Runnable listener = deathListeners.remove(client);
+            if (listener != null)
+                client.removeDeathListener(listener);
+        }
+        return removed[0];
+    }
+
+    private static <K> void addIndex(Map<K, Set<WebhookClient>> index, K key, WebhookClient client) {
+        index.compute(key, (k, set) -> {
+            if (set == null)
+                set = ConcurrentHashMap.newKeySet();
+            set.add(client);
+            return set;
+        });
+    }
+
+    private static <K> void removeIndex(Map<K, Set<WebhookClient>> index, K key, WebhookClient client) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(client);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @NotNull
+    private static List<WebhookClient> snapshot(@Nullable Set<WebhookClient> clients) {
+        if (clients == null)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(new ArrayList<>(clients));
+    }
+
+    @NotNull
+    private static List<String> checkTags(@NotNull String[] tags) {
+        Objects.requireNonNull(tags, "Tags");
+        for (String tag : tags)
+            Objects.requireNonNull(tag, "Tag");
+        return Arrays.asList(tags);
+    }
+
+    @NotNull
+    private List<CompletableFuture<ReadonlyMessage>> execute(@NotNull Collection<WebhookClient> targets, @NotNull WebhookMessage message) {
+        final long start = System.nanoTime();
+        // Attachments are prepared by the processor of each client, which also makes a new data set for each upload
+        final RequestBody body = message.isFile() ? null : message.getBody();
+        final List<CompletableFuture<ReadonlyMessage>> callbacks = new ArrayList<>(targets.size());
+        for (WebhookClient webhook : targets)
+            callbacks.add(body == null ? webhook.send(message) : webhook.execute(body));
+        emitBroadcast(callbacks.size(), start);
+        return callbacks;
+    }
+
+    private void emitBroadcast(int targets, long start) {
+        final WebhookEventListener listener = eventListener;
+        if (listener != null)
+            listener.onBroadcast(this, targets, start, System.nanoTime());
     }
 }
@@ -6,11 +6,16 @@ import club.minnced.discord.webhook.receive.ReadonlyMessage;
 import club.minnced.discord.webhook.send.AllowedMentions;
 import club.minnced.discord.webhook.send.WebhookMessage;
 import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import club.minnced.discord.webhook.util.HttpClients;
 import club.minnced.discord.webhook.util.ThreadPools;
+import club.minnced.discord.webhook.util.WebhookClock;
 import discord4j.core.spec.MessageCreateSpec;
 import discord4j.core.spec.MessageEditSpec;
 import okhttp3.OkHttpClient;
 import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.CheckReturnValue;
@@ -20,6 +25,9 @@ import java.util.function.Consumer;
 import java.util.regex.Matcher;
 
 public class D4JWebhookClient extends WebhookClient {
+    /** The default amount of messages {@link #sendMany(Publisher)} keeps in flight, equal to the webhook rate-limit of discord (5) */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 5;
+
     public D4JWebhookClient(long id, String token, boolean parseMessage, OkHttpClient client, ScheduledExecutorService pool, AllowedMentions mentions) {
         this(id, token, parseMessage, client, pool, mentions, 0L);
     }
@@ -28,6 +36,14 @@ public class D4JWebhookClient extends WebhookClient {
         super(id, token, parseMessage, client, pool, mentions, threadId);
     }
 
+    public D4JWebhookClient(long id, String token, boolean parseMessage, WebhookTransport transport, ScheduledExecutorService pool, AllowedMentions mentions, long threadId) {
+        super(id, token, parseMessage, transport, pool, mentions, threadId);
+    }
+
+    public D4JWebhookClient(long id, String token, boolean parseMessage, WebhookTransport transport, ScheduledExecutorService pool, AllowedMentions mentions, long threadId, WebhookClock clock) {
+        super(id, token, parseMessage, transport, pool, mentions, threadId, clock);
+    }
+
     protected D4JWebhookClient(D4JWebhookClient parent, long threadId) {
         super(parent, threadId);
     }
@@ -69,7 +85,7 @@ public class D4JWebhookClient extends WebhookClient {
     public static D4JWebhookClient withId(long id, @NotNull String token) {
         Objects.requireNonNull(token, "Token");
         ScheduledExecutorService pool = ThreadPools.getDefaultPool(id, null, false);
-        return new D4JWebhookClient(id, token, true, new OkHttpClient(), pool, AllowedMentions.all(), 0L);
+        return new D4JWebhookClient(id, token, true, HttpClients.getDefaultClient(), pool, AllowedMentions.all(), 0L);
     }
 
     /**
@@ -100,7 +116,7 @@ public class D4JWebhookClient extends WebhookClient {
     @NotNull
     @Override
     public D4JWebhookClient onThread(final long threadId) {
-        return new D4JWebhookClient(this, threadId);
+        return fork(threadId, id -> new D4JWebhookClient(this, id));
     }
 
     /**
@@ -197,6 +213,60 @@ public class D4JWebhookClient extends WebhookClient {
         return Mono.fromFuture(() -> send(message));
     }
 
+    /**
+     * Sends all messages of the provided {@link Publisher} to the webhook, in order.
+     * <br>This keeps at most {@value #DEFAULT_MAX_IN_FLIGHT} messages in flight, see {@link #sendMany(Publisher, int)}.
+     *
+     * @param  specs
+     *         The message create specs to send
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return {@link Flux} of the resulting messages, in the order of the specs
+     *
+     * @see    #isWait()
+     */
+    @NotNull
+    @CheckReturnValue
+    public Flux<ReadonlyMessage> sendMany(@NotNull Publisher<MessageCreateSpec> specs) {
+        return sendMany(specs, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Sends all messages of the provided {@link Publisher} to the webhook, in order.
+     *
+     * <p>Demand is driven by completed requests: the upstream is only requested for the next spec
+     * once one of the in-flight messages has been sent. Since messages are only sent as fast as the rate-limit permits,
+     * the upstream is throttled to the rate-limit of the webhook instead of being buffered in the request queue.
+     *
+     * <p>The resulting flux fails with the first failed request, which also cancels the upstream.
+     * If this client does not {@link #isWait() wait} for messages, the flux completes without emitting any messages.
+     *
+     * @param  specs
+     *         The message create specs to send
+     * @param  maxInFlight
+     *         The maximum amount of messages which are queued at the same time
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     * @throws IllegalArgumentException
+     *         If maxInFlight is not positive
+     *
+     * @return {@link Flux} of the resulting messages, in the order of the specs
+     *
+     * @see    #isWait()
+     */
+    @NotNull
+    @CheckReturnValue
+    public Flux<ReadonlyMessage> sendMany(@NotNull Publisher<MessageCreateSpec> specs, int maxInFlight) {
+        Objects.requireNonNull(specs, "Specs");
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("Max in flight must be positive");
+        // Prefetch of 1 for the inner sources, each send resolves to at most one message
+        return Flux.from(specs).flatMapSequential(this::send, maxInFlight, 1);
+    }
+
     /**
      * Edits the target message with the provided {@link MessageCreateSpec} to the webhook.
      *
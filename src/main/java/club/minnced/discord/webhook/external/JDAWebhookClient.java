@@ -6,7 +6,10 @@ import club.minnced.discord.webhook.receive.ReadonlyMessage;
 import club.minnced.discord.webhook.send.AllowedMentions;
 import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
 import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import club.minnced.discord.webhook.util.HttpClients;
 import club.minnced.discord.webhook.util.ThreadPools;
+import club.minnced.discord.webhook.util.WebhookClock;
 import net.dv8tion.jda.api.entities.Message;
 import okhttp3.OkHttpClient;
 import org.jetbrains.annotations.NotNull;
@@ -25,6 +28,14 @@ public class JDAWebhookClient extends WebhookClient {
         super(id, token, parseMessage, client, pool, mentions, threadId);
     }
 
+    public JDAWebhookClient(long id, String token, boolean parseMessage, WebhookTransport transport, ScheduledExecutorService pool, AllowedMentions mentions, long threadId) {
+        super(id, token, parseMessage, transport, pool, mentions, threadId);
+    }
+
+    public JDAWebhookClient(long id, String token, boolean parseMessage, WebhookTransport transport, ScheduledExecutorService pool, AllowedMentions mentions, long threadId, WebhookClock clock) {
+        super(id, token, parseMessage, transport, pool, mentions, threadId, clock);
+    }
+
     protected JDAWebhookClient(JDAWebhookClient parent, long threadId) {
         super(parent, threadId);
     }
@@ -66,7 +77,7 @@ public class JDAWebhookClient extends WebhookClient {
     public static JDAWebhookClient withId(long id, @NotNull String token) {
         Objects.requireNonNull(token, "Token");
         ScheduledExecutorService pool = ThreadPools.getDefaultPool(id, null, false);
-        return new JDAWebhookClient(id, token, true, new OkHttpClient(), pool, AllowedMentions.all());
+        return new JDAWebhookClient(id, token, true, HttpClients.getDefaultClient(), pool, AllowedMentions.all());
     }
 
     /**
@@ -97,7 +108,7 @@ public class JDAWebhookClient extends WebhookClient {
     @NotNull
     @Override
     public JDAWebhookClient onThread(long threadId) {
-        return new JDAWebhookClient(this, threadId);
+        return fork(threadId, id -> new JDAWebhookClient(this, id));
     }
 
     /**
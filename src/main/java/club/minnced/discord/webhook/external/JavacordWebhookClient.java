@@ -6,7 +6,10 @@ import club.minnced.discord.webhook.receive.ReadonlyMessage;
 import club.minnced.discord.webhook.send.AllowedMentions;
 import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
 import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import club.minnced.discord.webhook.util.HttpClients;
 import club.minnced.discord.webhook.util.ThreadPools;
+import club.minnced.discord.webhook.util.WebhookClock;
 import okhttp3.OkHttpClient;
 import org.jetbrains.annotations.NotNull;
 
@@ -24,6 +27,14 @@ public class JavacordWebhookClient extends WebhookClient {
         super(id, token, parseMessage, client, pool, mentions, threadId);
     }
 
+    public JavacordWebhookClient(long id, String token, boolean parseMessage, WebhookTransport transport, ScheduledExecutorService pool, AllowedMentions mentions, long threadId) {
+        super(id, token, parseMessage, transport, pool, mentions, threadId);
+    }
+
+    public JavacordWebhookClient(long id, String token, boolean parseMessage, WebhookTransport transport, ScheduledExecutorService pool, AllowedMentions mentions, long threadId, WebhookClock clock) {
+        super(id, token, parseMessage, transport, pool, mentions, threadId, clock);
+    }
+
     protected JavacordWebhookClient(JavacordWebhookClient parent, long threadId) {
         super(parent, threadId);
     }
@@ -65,7 +76,7 @@ public class JavacordWebhookClient extends WebhookClient {
     public static JavacordWebhookClient withId(long id, @NotNull String token) {
         Objects.requireNonNull(token, "Token");
         ScheduledExecutorService pool = ThreadPools.getDefaultPool(id, null, false);
-        return new JavacordWebhookClient(id, token, true, new OkHttpClient(), pool, AllowedMentions.all());
+        return new JavacordWebhookClient(id, token, true, HttpClients.getDefaultClient(), pool, AllowedMentions.all());
     }
 
     /**
@@ -96,7 +107,7 @@ public class JavacordWebhookClient extends WebhookClient {
     @NotNull
     @Override
     public JavacordWebhookClient onThread(long threadId) {
-        return new JavacordWebhookClient(this, threadId);
+        return fork(threadId, id -> new JavacordWebhookClient(this, id));
     }
 
     /**
@@ -257,9 +257,9 @@ public class EntityFactory {
         final List<ReadonlyUser> mentionedUsers = convertToList(usersArray, EntityFactory::makeUser);
         final List<ReadonlyEmbed> embeds = convertToList(embedArray, EntityFactory::makeEmbed);
         final List<ReadonlyAttachment> attachments = convertToList(attachmentArray, EntityFactory::makeAttachment);
-        final List<Long> mentionedRoles = new ArrayList<>();
-        for (int i = 0; i < rolesArray.length(); i++) {
-            mentionedRoles.add(Long.parseUnsignedLong(rolesArray.getString(i)));
+        final long[] mentionedRoles = new long[rolesArray.length()];
+        for (int i = 0; i < mentionedRoles.length; i++) {
+            mentionedRoles[i] = Long.parseUnsignedLong(rolesArray.getString(i));
         }
         return new ReadonlyMessage(
                 id, channelId, mentionEveryone, tts,
@@ -21,7 +21,9 @@ import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
 import org.json.JSONString;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Readonly message representation used for responses
@@ -43,13 +45,22 @@ public class ReadonlyMessage implements JSONString {
     private final List<ReadonlyAttachment> attachments;
 
     private final List<ReadonlyUser> mentionedUsers;
-    private final List<Long> mentionedRoles;
+    private final long[] mentionedRoles;
 
     public ReadonlyMessage(
             long id, long channelId, boolean mentionsEveryone, boolean tts, int flags,
             @NotNull ReadonlyUser author, @NotNull String content,
             @NotNull List<ReadonlyEmbed> embeds, @NotNull List<ReadonlyAttachment> attachments,
             @NotNull List<ReadonlyUser> mentionedUsers, @NotNull List<Long> mentionedRoles) {
+        this(id, channelId, mentionsEveryone, tts, flags, author, content, embeds, attachments, mentionedUsers,
+             mentionedRoles.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    public ReadonlyMessage(
+            long id, long channelId, boolean mentionsEveryone, boolean tts, int flags,
+            @NotNull ReadonlyUser author, @NotNull String content,
+            @NotNull List<ReadonlyEmbed> embeds, @NotNull List<ReadonlyAttachment> attachments,
+            @NotNull List<ReadonlyUser> mentionedUsers, @NotNull long[] mentionedRoles) {
         this.id = id;
         this.channelId = channelId;
         this.mentionsEveryone = mentionsEveryone;
@@ -165,14 +176,38 @@ public class ReadonlyMessage implements JSONString {
         return mentionedUsers;
     }
 
+    /**
+     * The ids of the mentioned users, in the same order as {@link #getMentionedUsers()}
+     *
+     * @return Array of ids for directly mentioned users
+     */
+    @NotNull
+    public long[] getMentionedUserIds() {
+        long[] ids = new long[mentionedUsers.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = mentionedUsers.get(i).getId();
+        return ids;
+    }
+
     /**
      * List of mentioned role ids
+     * <br>This is a boxing view of {@link #getMentionedRoleIds()}.
      *
      * @return List of ids for directly mentioned roles
      */
     @NotNull
     public List<Long> getMentionedRoles() {
-        return mentionedRoles;
+        return new SnowflakeList(mentionedRoles);
+    }
+
+    /**
+     * The ids of the mentioned roles
+     *
+     * @return Array of ids for directly mentioned roles
+     */
+    @NotNull
+    public long[] getMentionedRoleIds() {
+        return mentionedRoles.clone();
     }
 
     /**
@@ -202,7 +237,7 @@ public class ReadonlyMessage implements JSONString {
         json.put("content", content)
             .put("embeds", embeds)
             .put("mentions", mentionedUsers)
-            .put("mention_roles", mentionedRoles)
+            .put("mention_roles", toStrings(mentionedRoles))
             .put("attachments", attachments)
             .put("author", author)
             .put("tts", tts)
@@ -211,4 +246,29 @@ public class ReadonlyMessage implements JSONString {
             .put("mention_everyone", mentionsEveryone);
         return json.toString();
     }
+
+    private static String[] toStrings(long[] ids) {
+        String[] strings = new String[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            strings[i] = Long.toUnsignedString(ids[i]);
+        return strings;
+    }
+
+    private static final class SnowflakeList extends AbstractList<Long> implements RandomAccess {
+        private final long[] ids;
+
+        private SnowflakeList(long[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public Long get(int index) {
+            return ids[index];
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
 }
@@ -21,18 +21,22 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONString;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Constructs a whitelist of allowed mentions for a message.
  * If any argument in this class is {@code null}, a {@link NullPointerException} will be thrown.
  *
+ * <p>The {@code withX} methods modify this instance and return it for chaining.
+ * Clients and messages do not keep the instance itself, they use an immutable {@link #snapshot()} of it,
+ * so changes after a message was built or a client was created do not affect them.
+ * Snapshots of policies without whitelists, such as {@link #all()} and {@link #none()}, are shared instances,
+ * and the json representation of a snapshot is computed only once.
+ *
  * <h2>Example</h2>
  * <pre>{@code
- * AllowedMentions mentions = new AllowedMentions()
+ * AllowedMentions mentions = AllowedMentions.none()
  *   .withUsers("86699011792191488", "107562988810027008")
  *   .withParseEveryone(false)
  *   .withParseRoles(false);
@@ -54,6 +58,16 @@ import java.util.Set;
  * @see #none()
  */
 public class AllowedMentions implements JSONString {
+    private static final long[] EMPTY = new long[0];
+    private static final int USERS = 1, ROLES = 1 << 1, EVERYONE = 1 << 2;
+    // Shared snapshots without whitelists, indexed by parse flags
+    private static final AllowedMentions[] POLICIES = new AllowedMentions[8];
+
+    static {
+        for (int flags = 0; flags < POLICIES.length; flags++)
+            POLICIES[flags] = new AllowedMentions((flags & USERS) != 0, (flags & ROLES) != 0, (flags & EVERYONE) != 0, EMPTY, EMPTY, true);
+    }
+
     /**
      * Parse all mentions.
      *
@@ -67,11 +81,9 @@ public class AllowedMentions implements JSONString {
      *
      * @return Every mention type will be parsed.
      */
+    @NotNull
     public static AllowedMentions all() {
-        return new AllowedMentions()
-            .withParseEveryone(true)
-            .withParseRoles(true)
-            .withParseUsers(true);
+        return new AllowedMentions(true, true, true, EMPTY, EMPTY, false);
     }
 
     /**
@@ -87,16 +99,51 @@ public class AllowedMentions implements JSONString {
      *
      * @return No mentions will be parsed.
      */
+    @NotNull
     public static AllowedMentions none() {
-        return new AllowedMentions()
-            .withParseEveryone(false)
-            .withParseRoles(false)
-            .withParseUsers(false);
+        return new AllowedMentions(false, false, false, EMPTY, EMPTY, false);
     }
 
     private boolean parseRoles, parseUsers, parseEveryone;
-    private final Set<String> users = new HashSet<>();
-    private final Set<String> roles = new HashSet<>();
+    // Sorted and distinct snowflake ids, replaced instead of modified so snapshots can share them
+    private long[] users;
+    private long[] roles;
+    private final boolean immutable;
+    private String json; // computed once for snapshots, cached until the next change otherwise
+
+    /**
+     * Creates an instance which does not parse any mentions.
+     */
+    public AllowedMentions() {
+        this(false, false, false, EMPTY, EMPTY, false);
+    }
+
+    private AllowedMentions(boolean parseUsers, boolean parseRoles, boolean parseEveryone, long[] users, long[] roles, boolean immutable) {
+        this.parseUsers = parseUsers;
+        this.parseRoles = parseRoles;
+        this.parseEveryone = parseEveryone;
+        this.users = users;
+        this.roles = roles;
+        this.immutable = immutable;
+        if (immutable)
+            this.json = encode();
+    }
+
+    /**
+     * Immutable copy of this policy, as used by messages and clients.
+     * <br>Snapshots of policies without whitelists are shared instances.
+     * The {@code withX} methods of a snapshot throw an {@link UnsupportedOperationException}.
+     *
+     * @return The immutable snapshot, or this instance if it already is one
+     */
+    @NotNull
+    public AllowedMentions snapshot() {
+        if (immutable)
+            return this;
+        if (users.length == 0 && roles.length == 0)
+            return POLICIES[(parseUsers ? USERS : 0) | (parseRoles ? ROLES : 0) | (parseEveryone ? EVERYONE : 0)];
+        return new AllowedMentions(parseUsers, parseRoles, parseEveryone, users, roles, true);
+    }
 
     /**
      * Whitelist specified users for mention.
@@ -105,12 +152,16 @@ public class AllowedMentions implements JSONString {
      * @param  userId
      *         The whitelist of users to mention
      *
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
      * @return AllowedMentions instance with applied whitelist
      */
     @NotNull
-    public AllowedMentions withUsers(@NotNull String... userId)
+    public AllowedMentions withUserIds(@NotNull long... userId)
     {
-        Collections.addAll(users, userId);
+        modify();
+        users = union(users, userId);
         parseUsers = false;
         return this;
     }
@@ -122,12 +173,16 @@ public class AllowedMentions implements JSONString {
      * @param  roleId
      *         The whitelist of roles to mention
      *
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
      * @return AllowedMentions instance with applied whitelist
      */
     @NotNull
-    public AllowedMentions withRoles(@NotNull String... roleId)
+    public AllowedMentions withRoleIds(@NotNull long... roleId)
     {
-        Collections.addAll(roles, roleId);
+        modify();
+        roles = union(roles, roleId);
         parseRoles = false;
         return this;
     }
@@ -139,14 +194,57 @@ public class AllowedMentions implements JSONString {
      * @param  userId
      *         The whitelist of users to mention
      *
+     * @throws NumberFormatException
+     *         If any of the ids is not a valid snowflake
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
+     * @return AllowedMentions instance with applied whitelist
+     */
+    @NotNull
+    public AllowedMentions withUsers(@NotNull String... userId)
+    {
+        return withUserIds(parse(Arrays.asList(userId)));
+    }
+
+    /**
+     * Whitelist specified roles for mention.
+     * <br>This will set {@link #withParseRoles(boolean)} to false.
+     *
+     * @param  roleId
+     *         The whitelist of roles to mention
+     *
+     * @throws NumberFormatException
+     *         If any of the ids is not a valid snowflake
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
+     * @return AllowedMentions instance with applied whitelist
+     */
+    @NotNull
+    public AllowedMentions withRoles(@NotNull String... roleId)
+    {
+        return withRoleIds(parse(Arrays.asList(roleId)));
+    }
+
+    /**
+     * Whitelist specified users for mention.
+     * <br>This will set {@link #withParseUsers(boolean)} to false.
+     *
+     * @param  userId
+     *         The whitelist of users to mention
+     *
+     * @throws NumberFormatException
+     *         If any of the ids is not a valid snowflake
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
      * @return AllowedMentions instance with applied whitelist
      */
     @NotNull
     public AllowedMentions withUsers(@NotNull Collection<String> userId)
     {
-        users.addAll(userId);
-        parseUsers = false;
-        return this;
+        return withUserIds(parse(userId));
     }
 
     /**
@@ -156,14 +254,17 @@ public class AllowedMentions implements JSONString {
      * @param  roleId
      *         The whitelist of roles to mention
      *
+     * @throws NumberFormatException
+     *         If any of the ids is not a valid snowflake
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
      * @return AllowedMentions instance with applied whitelist
      */
     @NotNull
     public AllowedMentions withRoles(@NotNull Collection<String> roleId)
     {
-        roles.addAll(roleId);
-        parseRoles = false;
-        return this;
+        return withRoleIds(parse(roleId));
     }
 
     /**
@@ -172,63 +273,161 @@ public class AllowedMentions implements JSONString {
      * @param  allowEveryoneMention
      *         True, if {@code @everyone} should be parsed
      *
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
      * @return AllowedMentions instance with applied parsing rule
      */
     @NotNull
     public AllowedMentions withParseEveryone(boolean allowEveryoneMention)
     {
+        modify();
         parseEveryone = allowEveryoneMention;
         return this;
     }
 
     /**
      * Whether to parse user mentions.
-     * <br>Setting this to {@code true} will clear the whitelist provided by {@link #withUsers(String...)}.
+     * <br>Setting this to {@code true} will clear the whitelist provided by {@link #withUserIds(long...)}.
      *
      * @param  allowParseUsers
      *         True, if all user mentions should be parsed
      *
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
      * @return AllowedMentions instance with applied parsing rule
      */
     @NotNull
     public AllowedMentions withParseUsers(boolean allowParseUsers)
     {
+        modify();
         parseUsers = allowParseUsers;
         if (parseUsers)
-            users.clear();
+            users = EMPTY;
         return this;
     }
 
     /**
      * Whether to parse role mentions.
-     * <br>Setting this to {@code true} will clear the whitelist provided by {@link #withRoles(String...)}.
+     * <br>Setting this to {@code true} will clear the whitelist provided by {@link #withRoleIds(long...)}.
      *
      * @param  allowParseRoles
      *         True, if all role mentions should be parsed
      *
+     * @throws UnsupportedOperationException
+     *         If this is a {@link #snapshot()}
+     *
      * @return AllowedMentions instance with applied parsing rule
      */
     @NotNull
     public AllowedMentions withParseRoles(boolean allowParseRoles)
     {
+        modify();
         parseRoles = allowParseRoles;
         if (parseRoles)
-            roles.clear();
+            roles = EMPTY;
         return this;
     }
 
+    /**
+     * Whether all user mentions are parsed
+     *
+     * @return True, if user mentions are parsed
+     */
+    public boolean isParseUsers()
+    {
+        return parseUsers;
+    }
+
+    /**
+     * Whether all role mentions are parsed
+     *
+     * @return True, if role mentions are parsed
+     */
+    public boolean isParseRoles()
+    {
+        return parseRoles;
+    }
+
+    /**
+     * Whether {@code @everyone} and {@code @here} mentions are parsed
+     *
+     * @return True, if everyone mentions are parsed
+     */
+    public boolean isParseEveryone()
+    {
+        return parseEveryone;
+    }
+
+    /**
+     * The whitelisted user ids, in ascending order
+     *
+     * @return Copy of the whitelisted user ids
+     */
+    @NotNull
+    public long[] getUserIds()
+    {
+        return users.clone();
+    }
+
+    /**
+     * The whitelisted role ids, in ascending order
+     *
+     * @return Copy of the whitelisted role ids
+     */
+    @NotNull
+    public long[] getRoleIds()
+    {
+        return roles.clone();
+    }
+
     @Override
     public String toJSONString() {
+        String json = this.json;
+        if (json == null)
+            this.json = json = encode();
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return toJSONString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof AllowedMentions))
+            return false;
+        AllowedMentions other = (AllowedMentions) obj;
+        return parseUsers == other.parseUsers && parseRoles == other.parseRoles && parseEveryone == other.parseEveryone
+            && Arrays.equals(users, other.users) && Arrays.equals(roles, other.roles);
+    }
+
+    @Override
+    public int hashCode() {
+        return toJSONString().hashCode();
+    }
+
+    private void modify() {
+        if (immutable)
+            throw new UnsupportedOperationException("Cannot modify a snapshot of allowed mentions");
+        json = null;
+    }
+
+    private String encode() {
         JSONObject json = new JSONObject();
         json.put("parse", new JSONArray());
 
-        if (!users.isEmpty())
-            json.put("users", users);
+        if (users.length > 0)
+            json.put("users", toJSON(users));
         else if (parseUsers)
             json.accumulate("parse", "users");
 
-        if (!roles.isEmpty())
-            json.put("roles", roles);
+        if (roles.length > 0)
+            json.put("roles", toJSON(roles));
         else if (parseRoles)
             json.accumulate("parse", "roles");
 
@@ -236,4 +435,33 @@ public class AllowedMentions implements JSONString {
             json.accumulate("parse", "everyone");
         return json.toString();
     }
+
+    private static long[] parse(Collection<String> ids) {
+        long[] parsed = new long[ids.size()];
+        int i = 0;
+        for (String id : ids)
+            parsed[i++] = Long.parseUnsignedLong(id);
+        return parsed;
+    }
+
+    private static long[] union(long[] set, long[] ids) {
+        if (ids.length == 0)
+            return set;
+        long[] merged = Arrays.copyOf(set, set.length + ids.length);
+        System.arraycopy(ids, 0, merged, set.length, ids.length);
+        Arrays.sort(merged);
+        int size = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (size == 0 || merged[size - 1] != merged[i])
+                merged[size++] = merged[i];
+        }
+        return size == merged.length ? merged : Arrays.copyOf(merged, size);
+    }
+
+    private static JSONArray toJSON(long[] ids) {
+        JSONArray array = new JSONArray();
+        for (long id : ids)
+            array.put(Long.toUnsignedString(id));
+        return array;
+    }
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package club.minnced.discord.webhook.send;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.CheckReturnValue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Prepares the attachments of a message before it is uploaded by a {@link club.minnced.discord.webhook.WebhookClient}.
+ * <br>If not explicitly configured, attachments are uploaded as is.
+ *
+ * <p>Text-like attachments, such as {@code .txt}, {@code .log} or {@code .json} files, are gzip compressed
+ * if they exceed the {@link #withCompression(boolean, int) threshold} and the compressed data is smaller.
+ * The compressed attachments are renamed to {@code <name>.gz}.
+ * Images and archives are already compressed and are not modified.
+ *
+ * <p>The total size of the attachments is checked against the {@link #withMaxSize(long) upload limit},
+ * messages above the limit fail with an {@link IllegalArgumentException} instead of a 413 after the upload.
+ *
+ * <p>The attachments are read and processed on a bounded worker pool shared by all clients,
+ * the request keeps its position in the queue and is only executed once it is prepared.
+ *
+ * <p>Instances are immutable, each {@code withX} method returns an updated instance.
+ *
+ * @see club.minnced.discord.webhook.WebhookClientBuilder#setAttachmentProcessor(AttachmentProcessor)
+ */
+public final class AttachmentProcessor {
+    /** The default upload limit of discord (25 MiB) */
+    public static final long DEFAULT_MAX_SIZE = 25L << 20;
+
+    /**
+     * Processor which compresses text-like attachments above 8 KiB and checks the {@link #DEFAULT_MAX_SIZE default upload limit}
+     */
+    public static final AttachmentProcessor DEFAULT = new AttachmentProcessor(true, 8 << 10, DEFAULT_MAX_SIZE);
+
+    private static final Set<String> TEXT_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "txt", "log", "json", "csv", "tsv", "xml", "html", "htm", "md", "yml", "yaml", "sql", "ini", "cfg", "conf", "properties"));
+
+    private final boolean compress;
+    private final int compressionThreshold;
+    private final long maxSize;
+
+    private AttachmentProcessor(boolean compress, int compressionThreshold, long maxSize) {
+        this.compress = compress;
+        this.compressionThreshold = compressionThreshold;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Whether text-like attachments are gzip compressed.
+     *
+     * @return True, if text is compressed
+     */
+    public boolean isCompressionEnabled() {
+        return compress;
+    }
+
+    /**
+     * The minimum size in bytes of text-like attachments which are compressed.
+     *
+     * @return The compression threshold
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * The maximum total size in bytes of the attachments of one message.
+     *
+     * @return The upload limit
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Updates the compression of text-like attachments.
+     *
+     * @param  compress
+     *         Whether to compress text-like attachments
+     * @param  threshold
+     *         The minimum size in bytes of compressed attachments, smaller files are not worth compressing
+     *
+     * @throws IllegalArgumentException
+     *         If the threshold is negative
+     *
+     * @return The updated processor
+     */
+    @NotNull
+    @CheckReturnValue
+    public AttachmentProcessor withCompression(boolean compress, int threshold) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("Threshold must not be negative");
+        return new AttachmentProcessor(compress, threshold, maxSize);
+    }
+
+    /**
+     * Updates the upload limit, for instance for servers with a higher boost level.
+     *
+     * @param  maxSize
+     *         The maximum total size in bytes of the attachments of one message
+     *
+     * @throws IllegalArgumentException
+     *         If the limit is not positive
+     *
+     * @return The updated processor
+     */
+    @NotNull
+    @CheckReturnValue
+    public AttachmentProcessor withMaxSize(long maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Max size must be positive");
+        return new AttachmentProcessor(compress, compressionThreshold, maxSize);
+    }
+
+    /**
+     * Processes the attachments of the provided message.
+     * <br>This reads lazy attachments into memory, so the request body is written without further I/O.
+     *
+     * @param  message
+     *         The message to process
+     *
+     * @throws IOException
+     *         If an attachment cannot be read
+     * @throws IllegalArgumentException
+     *         If the attachments exceed the upload limit
+     *
+     * @return The message with the processed attachments, or the same message if it has no attachments
+     */
+    @NotNull
+    public WebhookMessage process(@NotNull WebhookMessage message) throws IOException {
+        if (!message.isFile())
+            return message;
+        MessageAttachment[] attachments = message.getAttachments().clone();
+        long size = 0;
+        for (int i = 0; i < attachments.length && attachments[i] != null; i++) {
+            MessageAttachment attachment = attachments[i];
+            byte[] data;
+            try {
+                data = attachment.getData();
+            }
+            catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+
+            if (compress && data.length >= compressionThreshold && isText(attachment.getName())) {
+                byte[] compressed = gzip(data);
+                if (compressed.length < data.length) {
+                    attachments[i] = new MessageAttachment(attachment.getName() + ".gz", compressed);
+                    data = compressed;
+                }
+            }
+            size += data.length;
+        }
+
+        if (size > maxSize)
+            throw new IllegalArgumentException("Attachments of " + size + " bytes exceed the upload limit of " + maxSize + " bytes");
+        return new WebhookMessage(message.username, message.avatarUrl, message.content, message.embeds, message.isTTS,
+                attachments, message.allowedMentions, message.flags, message.threadName);
+    }
+
+    private static boolean isText(String name) {
+        int index = name.lastIndexOf('.');
+        return index >= 0 && TEXT_EXTENSIONS.contains(name.substring(index + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -17,19 +17,27 @@
 package club.minnced.discord.webhook.send;
 
 import club.minnced.discord.webhook.IOUtil;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 
 /**
  * Internal representation of attachments for outgoing messages
+ *
+ * <p>Attachments created from a {@link StreamSupplier} are lazy,
+ * the data is only read once the request body is written and then kept for retries of the same request.
  */
 public class MessageAttachment {
     private final String name;
-    private final byte[] data;
+    private StreamSupplier supplier;
+    private byte[] data;
 
     MessageAttachment(@NotNull String name, @NotNull byte[] data) {
         this.name = name;
@@ -47,13 +55,100 @@ public class MessageAttachment {
         this(name, new FileInputStream(file));
     }
 
+    MessageAttachment(@NotNull String name, @NotNull StreamSupplier supplier) {
+        this.name = name;
+        this.supplier = supplier;
+    }
+
     @NotNull
     public String getName() {
         return name;
     }
 
+    /**
+     * The data of this attachment.
+     * <br>For lazy attachments, this reads the stream if it has not been read yet.
+     *
+     * @throws UncheckedIOException
+     *         If the stream of a lazy attachment cannot be read
+     *
+     * @return The data
+     */
     @NotNull
     public byte[] getData() {
+        try {
+            return load();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Whether the data of this attachment has already been read into memory.
+     *
+     * @return True, if the data is in memory
+     */
+    public synchronized boolean isLoaded() {
+        return data != null;
+    }
+
+    /**
+     * The request body for this attachment, used for multipart requests.
+     * <br>Lazy attachments are only read once the body is written.
+     *
+     * @return The request body
+     */
+    @NotNull
+    public RequestBody getBody() {
+        return new AttachmentBody();
+    }
+
+    private synchronized byte[] load() throws IOException {
+        if (data == null) {
+            try (InputStream stream = supplier.openStream()) {
+                data = IOUtil.readAllBytes(stream);
+            }
+            supplier = null; // streams are usually not reusable
+        }
         return data;
     }
+
+    /**
+     * Supplier for the data of a lazy attachment.
+     * <br>The stream is opened once, when the attachment is first sent, and closed after it has been read.
+     */
+    @FunctionalInterface
+    public interface StreamSupplier {
+        /**
+         * Opens the stream of the attachment data
+         *
+         * @throws IOException
+         *         If the stream cannot be opened
+         *
+         * @return The stream
+         */
+        @NotNull
+        InputStream openStream() throws IOException;
+    }
+
+    private final class AttachmentBody extends RequestBody {
+        @Override
+        public MediaType contentType() {
+            return IOUtil.OCTET;
+        }
+
+        @Override
+        public long contentLength() {
+            // Unknown until the stream has been read, which makes okhttp write this part chunked
+            synchronized (MessageAttachment.this) {
+                return data == null ? -1 : data.length;
+            }
+        }
+
+        @Override
+        public void writeTo(@NotNull BufferedSink sink) throws IOException {
+            sink.write(load());
+        }
+    }
 }
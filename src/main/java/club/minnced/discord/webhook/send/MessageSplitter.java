@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package club.minnced.discord.webhook.send;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Splits content and embeds which exceed the limits of a single message into ordered parts.
+ *
+ * <p>Content is split on line boundaries, lines which exceed a part on their own are split on whitespace.
+ * Code blocks which span multiple parts are closed at the end of each part and reopened with the same language in the next part,
+ * text after an opening fence which is not a single short word is treated as content and not repeated.
+ * Embeds are grouped by {@value WebhookMessage#MAX_EMBEDS}, the first group is attached to the last part of the content.
+ *
+ * @see club.minnced.discord.webhook.WebhookClient#sendSplit(String)
+ */
+public final class MessageSplitter {
+    private static final String FENCE = "```";
+    private static final int CLOSE_LENGTH = FENCE.length() + 1;
+    private static final int MAX_LANGUAGE_LENGTH = 16; // longer words after a fence are not reopened as language
+    private static final int MIN_LENGTH = 32;
+
+    private MessageSplitter() {}
+
+    /**
+     * Splits the provided content into parts of at most {@value WebhookMessage#MAX_CONTENT_LENGTH} characters.
+     *
+     * @param  content
+     *         The content to split
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return Unmodifiable list of the parts, empty for blank content
+     */
+    @NotNull
+    public static List<String> splitContent(@NotNull CharSequence content) {
+        return splitContent(content, WebhookMessage.MAX_CONTENT_LENGTH);
+    }
+
+    /**
+     * Splits the provided content into parts of at most {@code maxLength} characters.
+     *
+     * @param  content
+     *         The content to split
+     * @param  maxLength
+     *         The maximum length of each part
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     * @throws IllegalArgumentException
+     *         If the maximum length is less than 32, which leaves no room to reopen code blocks
+     *
+     * @return Unmodifiable list of the parts, empty for blank content
+     */
+    @NotNull
+    public static List<String> splitContent(@NotNull CharSequence content, int maxLength) {
+        Objects.requireNonNull(content, "Content");
+        if (maxLength < MIN_LENGTH)
+            throw new IllegalArgumentException("Max length must be at least " + MIN_LENGTH);
+
+        final String text = content.toString();
+        final List<String> parts = new ArrayList<>();
+        final StringBuilder part = new StringBuilder();
+        String fence = null; // header to reopen the code block which is open at the end of the part
+        int reopened = 0; // length of the header the current part starts with
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            final String after = fenceAfter(text, start, end, fence);
+            if (!exceeds(part, end - start, after, maxLength)) {
+                part.append(text, start, end);
+                fence = after;
+                start = end;
+            }
+            else if (part.length() > reopened) {
+                reopened = flush(parts, part, fence); // the line is tried again on the next part
+            }
+            else {
+                // the line does not fit into a part on its own, the cut always consumes input
+                int cut = breakPoint(text, start, end, maxLength - part.length() - CLOSE_LENGTH);
+                fence = fenceAfter(text, start, start + cut, fence);
+                part.append(text, start, start + cut);
+                start += cut;
+                reopened = flush(parts, part, fence);
+            }
+        }
+        if (part.length() > reopened)
+            flush(parts, part, fence);
+        return Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * Splits the provided content and embeds into builders for the individual messages.
+     * <br>The builders can be used to configure further properties of the messages, such as the username.
+     *
+     * @param  content
+     *         The content to split, may be empty
+     * @param  embeds
+     *         The embeds to distribute, may be empty
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return List of message builders in the order the messages should be sent
+     */
+    @NotNull
+    public static List<WebhookMessageBuilder> split(@NotNull CharSequence content, @NotNull Collection<? extends WebhookEmbed> embeds) {
+        Objects.requireNonNull(embeds, "Embeds");
+        List<WebhookMessageBuilder> builders = new ArrayList<>();
+        for (String part : splitContent(content))
+            builders.add(new WebhookMessageBuilder().setContent(part));
+
+        List<WebhookEmbed> group = new ArrayList<>(WebhookMessage.MAX_EMBEDS);
+        boolean attach = !builders.isEmpty();
+        for (WebhookEmbed embed : embeds) {
+            group.add(Objects.requireNonNull(embed, "Embed"));
+            if (group.size() == WebhookMessage.MAX_EMBEDS) {
+                addEmbeds(builders, group, attach);
+                attach = false;
+                group.clear();
+            }
+        }
+        if (!group.isEmpty())
+            addEmbeds(builders, group, attach);
+        return builders;
+    }
+
+    private static void addEmbeds(List<WebhookMessageBuilder> builders, List<WebhookEmbed> group, boolean attach) {
+        if (attach)
+            builders.get(builders.size() - 1).addEmbeds(group);
+        else
+            builders.add(new WebhookMessageBuilder().addEmbeds(group));
+    }
+
+    private static boolean exceeds(StringBuilder part, int length, String fence, int maxLength) {
+        // an open code block is closed with a line break and the fence
+        return part.length() + length + (fence == null ? 0 : CLOSE_LENGTH) > maxLength;
+    }
+
+    // An odd amount of fences opens or closes a code block, inline blocks like ```code``` do not
+    private static String fenceAfter(String text, int start, int end, String fence) {
+        int count = 0, last = -1;
+        for (int i = text.indexOf(FENCE, start); i >= 0 && i < end; i = text.indexOf(FENCE, i + FENCE.length())) {
+            count++;
+            last = i;
+        }
+        if (count % 2 == 0)
+            return fence;
+        if (fence != null)
+            return null;
+        int language = languageLength(text, last + FENCE.length());
+        if (last + FENCE.length() + language > end)
+            language = 0;
+        return text.substring(last, last + FENCE.length() + language);
+    }
+
+    // The language of a code block is a single short word on the line of the opening fence, anything else is content
+    private static int languageLength(String text, int start) {
+        int end = start;
+        while (end < text.length() && end - start <= MAX_LANGUAGE_LENGTH) {
+            char c = text.charAt(end);
+            if (c == '\n')
+                break;
+            if (c == '`' || Character.isWhitespace(c))
+                return 0;
+            end++;
+        }
+        boolean endOfLine = end == text.length() || text.charAt(end) == '\n';
+        return endOfLine && end - start <= MAX_LANGUAGE_LENGTH ? end - start : 0;
+    }
+
+    private static int breakPoint(String text, int start, int end, int room) {
+        if (end - start <= room)
+            return end - start;
+        int cut = room;
+        for (int i = room; i > room / 2; i--) {
+            if (Character.isWhitespace(text.charAt(start + i - 1))) {
+                cut = i;
+                break;
+            }
+        }
+
+        // cutting a fence or the language of a code block would change the blocks of both parts
+        for (int i = text.indexOf(FENCE, start); i >= 0 && i < start + cut; i = text.indexOf(FENCE, i + FENCE.length())) {
+            int regionEnd = i + FENCE.length() + languageLength(text, i + FENCE.length());
+            if (start + cut < regionEnd) {
+                if (i > start)
+                    return i - start;
+                return regionEnd - start <= room ? regionEnd - start : FENCE.length();
+            }
+        }
+        return cut;
+    }
+
+    // Returns the length of the header which reopens the code block in the next part
+    private static int flush(List<String> parts, StringBuilder part, String fence) {
+        if (fence != null) {
+            if (part.charAt(part.length() - 1) != '\n')
+                part.append('\n');
+            part.append(FENCE);
+        }
+        int length = part.length();
+        while (length > 0 && Character.isWhitespace(part.charAt(length - 1)))
+            length--;
+        if (length > 0)
+            parts.add(part.substring(0, length));
+        part.setLength(0);
+        if (fence != null)
+            part.append(fence).append('\n');
+        return part.length();
+    }
+}
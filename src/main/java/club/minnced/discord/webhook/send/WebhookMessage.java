@@ -43,6 +43,8 @@ public class WebhookMessage {
     public static final int MAX_FILES = 10;
     /** Maximum amount of embeds a single message can hold (10) */
     public static final int MAX_EMBEDS = 10;
+    /** Maximum length of the content of a single message (2000) */
+    public static final int MAX_CONTENT_LENGTH = 2000;
 
     protected final String username, avatarUrl, content;
     protected final List<WebhookEmbed> embeds;
@@ -62,7 +64,7 @@ public class WebhookMessage {
         this.embeds = embeds;
         this.isTTS = isTTS;
         this.attachments = files;
-        this.allowedMentions = allowedMentions;
+        this.allowedMentions = allowedMentions == null ? null : allowedMentions.snapshot();
         this.flags = flags;
         this.threadName = threadName;
     }
@@ -279,12 +281,12 @@ public class WebhookMessage {
      *
      * <p>The files are provided in pairs of {@literal Name->Data} similar
      * to the first 2 arguments.
-     * <br>The allowed data types are {@code byte[] | InputStream | File}
+     * <br>The allowed data types are {@code byte[] | InputStream | File | MessageAttachment.StreamSupplier}
      *
      * @param name1
      *         The alternative name of the first attachment
      * @param data1
-     *         The first attachment, must be of type {@code byte[] | InputStream | File}
+     *         The first attachment, must be of type {@code byte[] | InputStream | File | MessageAttachment.StreamSupplier}
      * @param attachments
      *         Optional additional attachments to add, pairs of {@literal String->Data}
      *
@@ -363,7 +365,7 @@ public class WebhookMessage {
                 final MessageAttachment attachment = attachments[i];
                 if (attachment == null)
                     break;
-                builder.addFormDataPart("file" + i, attachment.getName(), new IOUtil.OctetBody(attachment.getData()));
+                builder.addFormDataPart("file" + i, attachment.getName(), attachment.getBody());
             }
             return builder.addFormDataPart("payload_json", json).build();
         }
@@ -382,6 +384,8 @@ public class WebhookMessage {
                 a = new MessageAttachment(name, (InputStream) data);
             else if (data instanceof byte[])
                 a = new MessageAttachment(name, (byte[]) data);
+            else if (data instanceof MessageAttachment.StreamSupplier)
+                a = new MessageAttachment(name, (MessageAttachment.StreamSupplier) data);
             else
                 throw new IllegalArgumentException("Provided arguments must be pairs for (String, Data). Unexpected data type " + data.getClass().getName());
             return a;
@@ -35,6 +35,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -397,6 +398,35 @@ public class WebhookMessageBuilder {
         }
     }
 
+    /**
+     * Adds the provided stream supplier as a lazy file attachment to this message.
+     * <br>A single message can have up to {@value WebhookMessage#MAX_FILES} attachments.
+     *
+     * <p>The stream is only opened and read once the message is sent,
+     * instead of holding the data in memory while the message waits in the queue.
+     *
+     * @param  name
+     *         The alternative name that should be used
+     * @param  data
+     *         The supplier of the data to attach as a file
+     *
+     * @throws java.lang.NullPointerException
+     *         If provided with null
+     *
+     * @return This builder for chaining convenience
+     */
+    @NotNull
+    public WebhookMessageBuilder addFile(@NotNull String name, @NotNull MessageAttachment.StreamSupplier data) {
+        Objects.requireNonNull(data, "Supplier");
+        Objects.requireNonNull(name, "Name");
+        if (fileIndex >= WebhookMessage.MAX_FILES)
+            throw new IllegalStateException("Cannot add more than " + WebhookMessage.MAX_FILES + " attachments to a message");
+
+        MessageAttachment attachment = new MessageAttachment(name, data);
+        files[fileIndex++] = attachment;
+        return this;
+    }
+
     /**
      * Sets the provided name as the name for a newly created thread.
      * <br>This is only valid for forum/media channels.
@@ -499,17 +529,12 @@ public class WebhookMessageBuilder {
         builder.setContent(message.getContent());
         message.getEmbeds().forEach(embed -> builder.addEmbeds(WebhookEmbedBuilder.fromJavacord(embed).build()));
 
-        AllowedMentions allowedMentions = AllowedMentions.none();
-        allowedMentions.withUsers(
-            message.getMentionedUsers().stream()
-                .map(DiscordEntity::getIdAsString)
-                .collect(Collectors.toList()));
-        allowedMentions.withRoles(
-            message.getMentionedRoles().stream()
-                .map(DiscordEntity::getIdAsString)
-                .collect(Collectors.toList()));
-        allowedMentions.withParseEveryone(message.mentionsEveryone());
-        builder.setAllowedMentions(allowedMentions);
+        builder.setAllowedMentions(
+            AllowedMentions.none()
+                .withUserIds(message.getMentionedUsers().stream().mapToLong(DiscordEntity::getId).toArray())
+                .withRoleIds(message.getMentionedRoles().stream().mapToLong(DiscordEntity::getId).toArray())
+                .withParseEveryone(message.mentionsEveryone())
+        );
         return builder;
     }
 
@@ -547,7 +572,7 @@ public class WebhookMessageBuilder {
     public static WebhookMessageBuilder fromD4J(@NotNull MessageCreateSpec spec) {
         WebhookMessageBuilder builder = new WebhookMessageBuilder();
         MultipartRequest<MessageCreateRequest> data = spec.asRequest();
-        data.getFiles().forEach(tuple -> builder.addFile(tuple.getT1(), tuple.getT2()));
+        data.getFiles().forEach(tuple -> builder.addFile(tuple.getT1(), openOnce(tuple.getT2())));
         MessageCreateRequest jsonPayload = data.getJsonPayload();
         if (jsonPayload == null)
             return builder;
@@ -574,14 +599,14 @@ public class WebhookMessageBuilder {
             AllowedMentionsData mentions = allowedMentions.get();
             AllowedMentions whitelist = AllowedMentions.none();
             if (!mentions.users().isAbsent())
-                whitelist.withUsers(mentions.users().get());
+                whitelist = whitelist.withUsers(mentions.users().get());
             if (!mentions.roles().isAbsent())
-                whitelist.withRoles(mentions.roles().get());
+                whitelist = whitelist.withRoles(mentions.roles().get());
             if (!mentions.parse().isAbsent()) {
                 List<String> parse = mentions.parse().get();
-                whitelist.withParseRoles(parse.contains("roles"));
-                whitelist.withParseEveryone(parse.contains("everyone"));
-                whitelist.withParseUsers(parse.contains("users"));
+                whitelist = whitelist.withParseRoles(parse.contains("roles"));
+                whitelist = whitelist.withParseEveryone(parse.contains("everyone"));
+                whitelist = whitelist.withParseUsers(parse.contains("users"));
             }
             builder.setAllowedMentions(whitelist);
         }
@@ -604,7 +629,7 @@ public class WebhookMessageBuilder {
     public static WebhookMessageBuilder fromD4J(@NotNull MessageEditSpec spec) {
         WebhookMessageBuilder builder = new WebhookMessageBuilder();
         MultipartRequest<MessageEditRequest> data = spec.asRequest();
-        data.getFiles().forEach(tuple -> builder.addFile(tuple.getT1(), tuple.getT2()));
+        data.getFiles().forEach(tuple -> builder.addFile(tuple.getT1(), openOnce(tuple.getT2())));
         MessageEditRequest jsonPayload = data.getJsonPayload();
         if (jsonPayload == null)
             return builder;
@@ -628,18 +653,28 @@ public class WebhookMessageBuilder {
             AllowedMentionsData mentions = allowedMentions.get().get();
             AllowedMentions whitelist = AllowedMentions.none();
             if (!mentions.users().isAbsent())
-                whitelist.withUsers(mentions.users().get());
+                whitelist = whitelist.withUsers(mentions.users().get());
             if (!mentions.roles().isAbsent())
-                whitelist.withRoles(mentions.roles().get());
+                whitelist = whitelist.withRoles(mentions.roles().get());
             if (!mentions.parse().isAbsent()) {
                 List<String> parse = mentions.parse().get();
-                whitelist.withParseRoles(parse.contains("roles"));
-                whitelist.withParseEveryone(parse.contains("everyone"));
-                whitelist.withParseUsers(parse.contains("users"));
+                whitelist = whitelist.withParseRoles(parse.contains("roles"));
+                whitelist = whitelist.withParseEveryone(parse.contains("everyone"));
+                whitelist = whitelist.withParseUsers(parse.contains("users"));
             }
             builder.setAllowedMentions(whitelist);
         }
 
         return builder;
     }
+
+    // Discord4J hands out a single stream per file, a retry must not read it again from wherever the last read stopped
+    private static MessageAttachment.StreamSupplier openOnce(InputStream stream) {
+        AtomicBoolean opened = new AtomicBoolean();
+        return () -> {
+            if (!opened.compareAndSet(false, true))
+                throw new IOException("The stream of this attachment has already been consumed");
+            return stream;
+        };
+    }
 }
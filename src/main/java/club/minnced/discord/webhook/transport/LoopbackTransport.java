@@ -0,0 +1,350 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.transport;
+
+import club.minnced.discord.webhook.IOUtil;
+import okhttp3.*;
+import okio.Buffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory {@link WebhookTransport} which answers requests with a {@link Handler} on the calling thread.
+ *
+ * <p>This can be used to test or load-test the queue and rate-limit handling of webhook clients without any network.
+ * The {@link DiscordEmulator} handler implements the webhook endpoints with discord's rate-limit headers.
+ *
+ * <h2>Example</h2>
+ * <pre>{@code
+ * WebhookClient client = new WebhookClientBuilder(id, token)
+ *     .setTransport(LoopbackTransport.emulateDiscord(5, 2, TimeUnit.SECONDS))
+ *     .build();
+ * }</pre>
+ */
+public class LoopbackTransport implements WebhookTransport {
+    private final Handler handler;
+
+    /**
+     * Creates a transport which answers all requests with the provided handler.
+     *
+     * @param  handler
+     *         The handler
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     */
+    public LoopbackTransport(@NotNull Handler handler) {
+        this.handler = Objects.requireNonNull(handler, "Handler");
+    }
+
+    /**
+     * Creates a transport which emulates the discord webhook endpoints.
+     * <br>Each webhook id has its own bucket, which allows {@code limit} requests per reset interval.
+     * Further requests within the same interval are answered with 429.
+     *
+     * <p>Executed requests are answered with a minimal message echoing the json content of the request.
+     *
+     * @param  limit
+     *         The amount of requests per interval
+     * @param  resetAfter
+     *         The length of the reset interval
+     * @param  unit
+     *         The time unit of the interval
+     *
+     * @throws IllegalArgumentException
+     *         If the limit or interval is not positive
+     *
+     * @return The transport
+     */
+    @NotNull
+    public static LoopbackTransport emulateDiscord(int limit, long resetAfter, @NotNull TimeUnit unit) {
+        return new LoopbackTransport(new DiscordEmulator(limit, resetAfter, unit));
+    }
+
+    /**
+     * Creates a new response builder for the provided request.
+     * <br>This is a convenience method for {@link Handler} implementations.
+     *
+     * @param  request
+     *         The request to respond to
+     * @param  code
+     *         The http status code
+     * @param  json
+     *         The json body, or null for an empty body
+     *
+     * @return The response builder
+     */
+    @NotNull
+    public static Response.Builder newResponse(@NotNull Request request, int code, @Nullable String json) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message(code < 300 ? "OK" : "Error")
+                .body(ResponseBody.create(json == null ? "" : json, json == null ? null : IOUtil.JSON));
+    }
+
+    @NotNull
+    @Override
+    public Exchange newExchange(@NotNull Request request) {
+        return new LoopbackExchange(request);
+    }
+
+    /**
+     * Answers the requests of a {@link LoopbackTransport}.
+     * <br>Handlers are called concurrently by the threads of all clients using the transport.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Handles the provided request.
+         *
+         * @param  request
+         *         The request
+         *
+         * @throws IOException
+         *         To simulate a network failure
+         *
+         * @return The response
+         */
+        @NotNull
+        Response handle(@NotNull Request request) throws IOException;
+    }
+
+    private final class LoopbackExchange implements Exchange {
+        private final Request request;
+        private volatile boolean canceled;
+
+        private LoopbackExchange(Request request) {
+            this.request = request;
+        }
+
+        @NotNull
+        @Override
+        public Response execute() throws IOException {
+            if (canceled)
+                throw new IOException("Canceled");
+            return handler.handle(request);
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+    }
+
+    /**
+     * {@link Handler} emulating the discord webhook endpoints, as used by {@link #emulateDiscord(int, long, TimeUnit)}.
+     * <br>Each webhook id has its own bucket of {@code limit} requests per reset interval,
+     * optionally all webhooks also share a global limit of requests per second.
+     * Exhausted limits are answered with 429, {@code Retry-After} and the rate-limit headers discord would send.
+     *
+     * <p>The emulator counts the handled requests, which makes it suitable as the backend of load tests.
+     */
+    public static final class DiscordEmulator implements Handler {
+        private final int limit;
+        private final long resetMillis;
+        private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+        private final Bucket global = new Bucket();
+        private final AtomicLong messageIds = new AtomicLong(1);
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong rateLimited = new AtomicLong();
+        private final AtomicLong globalRateLimited = new AtomicLong();
+        private volatile int globalLimit;
+
+        /**
+         * Creates a new emulator without a global rate-limit.
+         *
+         * @param  limit
+         *         The amount of requests per interval for each webhook
+         * @param  resetAfter
+         *         The length of the reset interval
+         * @param  unit
+         *         The time unit of the interval
+         *
+         * @throws IllegalArgumentException
+         *         If the limit or interval is not positive
+         */
+        public DiscordEmulator(int limit, long resetAfter, @NotNull TimeUnit unit) {
+            if (limit < 1)
+                throw new IllegalArgumentException("Limit must be positive");
+            if (resetAfter < 1)
+                throw new IllegalArgumentException("Reset interval must be positive");
+            this.limit = limit;
+            this.resetMillis = unit.toMillis(resetAfter);
+        }
+
+        /**
+         * Sets the amount of requests per second shared by all webhooks.
+         *
+         * @param  perSecond
+         *         The global limit, or 0 to disable it
+         *
+         * @throws IllegalArgumentException
+         *         If the limit is negative
+         *
+         * @return The same emulator
+         */
+        @NotNull
+        public DiscordEmulator setGlobalLimit(int perSecond) {
+            if (perSecond < 0)
+                throw new IllegalArgumentException("Global limit must not be negative");
+            this.globalLimit = perSecond;
+            return this;
+        }
+
+        /**
+         * The amount of requests handled by this emulator
+         *
+         * @return The amount of requests
+         */
+        public long getRequests() {
+            return requests.get();
+        }
+
+        /**
+         * The amount of requests which were answered with 429, including global rate-limits
+         *
+         * @return The amount of rate-limited requests
+         */
+        public long getRateLimited() {
+            return rateLimited.get();
+        }
+
+        /**
+         * The amount of requests which hit the global rate-limit
+         *
+         * @return The amount of globally rate-limited requests
+         */
+        public long getGlobalRateLimited() {
+            return globalRateLimited.get();
+        }
+
+        @NotNull
+        @Override
+        public Response handle(@NotNull Request request) throws IOException {
+            requests.incrementAndGet();
+            List<String> path = request.url().pathSegments();
+            int index = path.indexOf("webhooks");
+            if (index < 0 || index + 1 >= path.size())
+                return newResponse(request, 404, "{\"message\":\"Unknown Webhook\",\"code\":10015}").build();
+
+            long now = System.currentTimeMillis();
+            int globalLimit = this.globalLimit;
+            long globalReset = globalLimit > 0 ? global.acquire(now, globalLimit, 1000) : 0;
+            if (globalReset > 0) {
+                globalRateLimited.incrementAndGet();
+                return rateLimit(request, globalReset, true);
+            }
+
+            String webhookId = path.get(index + 1);
+            Bucket bucket = buckets.computeIfAbsent(webhookId, k -> new Bucket());
+            long reset = bucket.acquire(now, limit, resetMillis);
+            if (reset > 0)
+                return rateLimit(request, reset, false);
+
+            int remaining = bucket.remaining();
+            reset = bucket.resetAfter(now);
+            boolean wait = "true".equals(request.url().queryParameter("wait"));
+            boolean hasBody = wait && !"DELETE".equals(request.method()) || "GET".equals(request.method());
+            String body = hasBody ? newMessage(webhookId, request.body()).toString() : null;
+            return newResponse(request, hasBody ? 200 : 204, body)
+                    .header("X-RateLimit-Limit", String.valueOf(limit))
+                    .header("X-RateLimit-Remaining", String.valueOf(remaining))
+                    .header("X-RateLimit-Reset-After", String.valueOf(reset / 1000.0))
+                    .build();
+        }
+
+        private Response rateLimit(Request request, long reset, boolean isGlobal) {
+            rateLimited.incrementAndGet();
+            JSONObject body = new JSONObject()
+                    .put("message", "You are being rate limited.")
+                    .put("retry_after", reset / 1000.0)
+                    .put("global", isGlobal);
+            Response.Builder response = newResponse(request, 429, body.toString())
+                    .header("Retry-After", String.valueOf((long) Math.ceil(reset / 1000.0)))
+                    .header("X-RateLimit-Limit", String.valueOf(limit))
+                    .header("X-RateLimit-Remaining", "0")
+                    .header("X-RateLimit-Reset-After", String.valueOf(reset / 1000.0));
+            if (isGlobal)
+                response.header("X-RateLimit-Global", "true");
+            return response.build();
+        }
+
+        private JSONObject newMessage(String webhookId, RequestBody requestBody) throws IOException {
+            String content = "";
+            MediaType type = requestBody == null ? null : requestBody.contentType();
+            if (type != null && "json".equals(type.subtype())) {
+                Buffer buffer = new Buffer();
+                requestBody.writeTo(buffer);
+                content = new JSONObject(buffer.readUtf8()).optString("content", "");
+            }
+
+            JSONObject author = new JSONObject()
+                    .put("id", webhookId)
+                    .put("username", "Loopback")
+                    .put("discriminator", "0000")
+                    .put("bot", true);
+            return new JSONObject()
+                    .put("id", Long.toUnsignedString(messageIds.getAndIncrement()))
+                    .put("channel_id", "0")
+                    .put("author", author)
+                    .put("content", content)
+                    .put("tts", false)
+                    .put("mention_everyone", false)
+                    .put("mentions", new JSONArray())
+                    .put("mention_roles", new JSONArray())
+                    .put("embeds", new JSONArray())
+                    .put("attachments", new JSONArray());
+        }
+    }
+
+    private static final class Bucket {
+        private long resetTime;
+        private int remaining;
+
+        // Returns 0 if a use was acquired, otherwise the millis until the reset
+        private synchronized long acquire(long now, int limit, long resetMillis) {
+            if (resetTime <= now) {
+                resetTime = now + resetMillis;
+                remaining = limit;
+            }
+            if (remaining <= 0)
+                return resetTime - now;
+            remaining--;
+            return 0;
+        }
+
+        private synchronized int remaining() {
+            return remaining;
+        }
+
+        private synchronized long resetAfter(long now) {
+            return Math.max(0, resetTime - now);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package club.minnced.discord.webhook.transport;
+
+import club.minnced.discord.webhook.util.HttpClients;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link WebhookTransport} implementation which executes requests with an {@link OkHttpClient}.
+ * <br>This is the default transport of the webhook clients.
+ *
+ * <p>Requests are enqueued on the {@link okhttp3.Dispatcher Dispatcher} of the client,
+ * its {@link okhttp3.Dispatcher#setMaxRequestsPerHost(int) per-host limit} bounds how many webhooks can have a request in flight at once.
+ * The clients created by {@link HttpClients} size this limit to the expected amount of webhooks,
+ * the limit of a plain {@link OkHttpClient} is 5.
+ *
+ * @see HttpClients
+ */
+public class OkHttpTransport implements WebhookTransport {
+    private final OkHttpClient client;
+
+    /**
+     * Creates a transport for the provided client.
+     *
+     * @param  client
+     *         The http client to use
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     */
+    public OkHttpTransport(@NotNull OkHttpClient client) {
+        this.client = Objects.requireNonNull(client, "Client");
+    }
+
+    /**
+     * Creates a transport for the shared {@link HttpClients#getDefaultClient() default client}.
+     *
+     * @return The transport
+     */
+    @NotNull
+    public static OkHttpTransport withDefaultClient() {
+        return new OkHttpTransport(HttpClients.getDefaultClient());
+    }
+
+    /**
+     * The http client used by this transport
+     *
+     * @return The http client
+     */
+    @NotNull
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    @NotNull
+    @Override
+    public Exchange newExchange(@NotNull Request request) {
+        return new CallExchange(client.newCall(request));
+    }
+
+    private static final class CallExchange implements Exchange {
+        private final Call call;
+
+        private CallExchange(Call call) {
+            this.call = call;
+        }
+
+        @NotNull
+        @Override
+        public Response execute() throws IOException {
+            return call.execute();
+        }
+
+        // Enqueued calls are executed by the dispatcher of the client, which limits the concurrent requests per host
+        @NotNull
+        @Override
+        public CompletableFuture<Response> executeAsync() {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    // Read the small json body on the dispatcher, so the webhook client never blocks on the socket
+                    try (ResponseBody body = response.body()) {
+                        byte[] content = body == null ? new byte[0] : body.bytes();
+                        MediaType type = body == null ? null : body.contentType();
+                        future.complete(response.newBuilder().body(ResponseBody.create(content, type)).build());
+                    }
+                    catch (IOException ex) {
+                        future.completeExceptionally(ex);
+                    }
+                }
+            });
+            return future;
+        }
+
+        @Override
+        public void cancel() {
+            call.cancel();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package club.minnced.discord.webhook.transport;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The http backend used by a {@link club.minnced.discord.webhook.WebhookClient} to execute its requests.
+ *
+ * <p>Requests and responses are represented by the {@link okhttp3.Request} and {@link okhttp3.Response} value types,
+ * a transport only has to translate them to its own http implementation.
+ * The queue and rate-limit handling of the webhook client are independent of the transport.
+ *
+ * <p>Available implementations:
+ * <ul>
+ *     <li>{@link OkHttpTransport} - Uses an {@link okhttp3.OkHttpClient} (default)</li>
+ *     <li>{@link LoopbackTransport} - Answers requests in-memory, without any network</li>
+ *     <li>{@code JdkHttpTransport} - Uses the {@code java.net.http.HttpClient} of Java 11 and later</li>
+ * </ul>
+ *
+ * @see club.minnced.discord.webhook.WebhookClientBuilder#setTransport(WebhookTransport)
+ */
+@FunctionalInterface
+public interface WebhookTransport {
+    /**
+     * Prepares the provided request for execution.
+     * <br>This must not perform any I/O, the request is only sent by {@link Exchange#execute()}.
+     *
+     * @param  request
+     *         The request to send
+     *
+     * @return The {@link Exchange} for this request
+     */
+    @NotNull
+    Exchange newExchange(@NotNull Request request);
+
+    /**
+     * A single request/response exchange of a {@link WebhookTransport}.
+     */
+    interface Exchange {
+        /**
+         * Sends the request and blocks until the response headers are received.
+         * <br>The caller is responsible for closing the returned response.
+         *
+         * @throws IOException
+         *         If the request could not be executed or was cancelled
+         *
+         * @return The response
+         */
+        @NotNull
+        Response execute() throws IOException;
+
+        /**
+         * Sends the request without blocking the calling thread.
+         * <br>The returned future completes with the response once the response headers are received,
+         * or fails with an {@link IOException} if the request could not be executed or was cancelled.
+         * The caller is responsible for closing the response.
+         *
+         * <p>The webhook client suspends its queue while the request is in flight,
+         * so the thread which drains the queue can serve other webhooks in the meantime.
+         * The default implementation calls {@link #execute()} on the calling thread,
+         * transports backed by an asynchronous http client should override this.
+         *
+         * @return Future of the response
+         */
+        @NotNull
+        default CompletableFuture<Response> executeAsync() {
+            CompletableFuture<Response> future = new CompletableFuture<>();
+            try {
+                future.complete(execute());
+            }
+            catch (IOException ex) {
+                future.completeExceptionally(ex);
+            }
+            return future;
+        }
+
+        /**
+         * Cancels this exchange, if possible.
+         * <br>A blocked {@link #execute()} call or a pending {@link #executeAsync()} future should fail with an {@link IOException}.
+         */
+        void cancel();
+    }
+}
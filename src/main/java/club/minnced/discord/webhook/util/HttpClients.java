@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.util;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared {@link OkHttpClient} profile for webhook traffic.
+ *
+ * <p>All webhook requests go to the same host, so a single client can serve every webhook of the application.
+ * Sharing the client means one connection pool, one dispatcher and one TLS session cache,
+ * instead of a separate set of connections and threads for each {@link club.minnced.discord.webhook.WebhookClient}.
+ *
+ * <p>The webhook client builders and factory methods use {@link #getDefaultClient()} if no http client is configured.
+ */
+public class HttpClients {
+    /** The amount of webhooks the default client is tuned for (100) */
+    public static final int DEFAULT_EXPECTED_WEBHOOKS = 100;
+
+    private static final int MAX_IDLE_CONNECTIONS = 32;
+    private static final int MAX_REQUESTS_PER_HOST = 256;
+
+    private static volatile OkHttpClient defaultClient;
+
+    /**
+     * The shared default client, lazily created with {@link #newWebhookClientBuilder(int)}
+     * for {@value #DEFAULT_EXPECTED_WEBHOOKS} webhooks.
+     *
+     * @return The shared default client
+     */
+    @NotNull
+    public static OkHttpClient getDefaultClient() {
+        OkHttpClient client = defaultClient;
+        if (client == null) {
+            synchronized (HttpClients.class) {
+                client = defaultClient;
+                if (client == null)
+                    defaultClient = client = newWebhookClientBuilder(DEFAULT_EXPECTED_WEBHOOKS).build();
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Replaces the shared default client used by webhook clients which are built without an explicit http client.
+     * <br>Already built webhook clients keep using their current client.
+     *
+     * @param  client
+     *         The new default client
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     */
+    public static void setDefaultClient(@NotNull OkHttpClient client) {
+        Objects.requireNonNull(client, "Client");
+        synchronized (HttpClients.class) {
+            defaultClient = client;
+        }
+    }
+
+    /**
+     * Creates an {@link OkHttpClient.Builder} tuned for the provided amount of webhooks.
+     *
+     * <ul>
+     *     <li>Webhook clients execute their requests asynchronously on the dispatcher,
+     *         its per-host limit bounds the requests in flight and grows with the amount of webhooks (OkHttp allows 5 by default)</li>
+     *     <li>The dispatcher uses daemon threads, idle clients do not keep the JVM alive</li>
+     *     <li>The idle connection pool grows with the amount of webhooks, for the HTTP/1.1 fallback</li>
+     *     <li>Idle connections are kept alive for 5 minutes to avoid repeated TLS handshakes between bursts</li>
+     * </ul>
+     *
+     * <p>Build the client once and share it between all webhook clients,
+     * TLS sessions are only reused by connections of the same client.
+     *
+     * @param  expectedWebhooks
+     *         The amount of webhooks this client will be used for
+     *
+     * @throws IllegalArgumentException
+     *         If the amount of webhooks is not positive
+     *
+     * @return The configured builder
+     */
+    @NotNull
+    public static OkHttpClient.Builder newWebhookClientBuilder(int expectedWebhooks) {
+        if (expectedWebhooks < 1)
+            throw new IllegalArgumentException("Expected webhooks must be positive");
+
+        // HTTP/2 needs only one connection, the idle pool covers HTTP/1.1 fallback with one connection per ~20 webhooks
+        int maxIdle = Math.max(5, Math.min(MAX_IDLE_CONNECTIONS, expectedWebhooks / 20));
+        // Each webhook has at most one request in flight, since its queue is drained sequentially.
+        // All calls are enqueued on the dispatcher, further calls wait in its queue once the limit is reached.
+        int maxRequests = Math.max(5, Math.min(MAX_REQUESTS_PER_HOST, expectedWebhooks));
+
+        AtomicInteger count = new AtomicInteger();
+        Dispatcher dispatcher = new Dispatcher(new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "Webhook-Dispatcher Thread " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        dispatcher.setMaxRequests(Math.max(64, maxRequests));
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdle, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true);
+    }
+}
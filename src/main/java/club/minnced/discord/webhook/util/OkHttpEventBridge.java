@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.util;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * OkHttp {@link EventListener} which forwards the events of webhook calls to a {@link WebhookEventListener}.
+ * <br>Calls which are not executed by a {@link club.minnced.discord.webhook.WebhookClient} with an event listener are ignored.
+ *
+ * <h2>Example</h2>
+ * <pre>{@code
+ * OkHttpClient http = HttpClients.newWebhookClientBuilder(100)
+ *     .eventListenerFactory(OkHttpEventBridge.factory(listener))
+ *     .build();
+ * WebhookClient client = new WebhookClientBuilder(url)
+ *     .setHttpClient(http)
+ *     .setEventListener(listener)
+ *     .build();
+ * }</pre>
+ */
+public class OkHttpEventBridge extends EventListener {
+    private final WebhookEventListener listener;
+    private final WebhookEventListener.RequestInfo request;
+
+    private OkHttpEventBridge(WebhookEventListener listener, WebhookEventListener.RequestInfo request) {
+        this.listener = listener;
+        this.request = request;
+    }
+
+    /**
+     * Creates an {@link EventListener.Factory} which forwards to the provided listener.
+     *
+     * @param  listener
+     *         The listener to forward to
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return The factory
+     */
+    @NotNull
+    public static EventListener.Factory factory(@NotNull WebhookEventListener listener) {
+        Objects.requireNonNull(listener, "Listener");
+        return call -> {
+            WebhookEventListener.RequestInfo request = call.request().tag(WebhookEventListener.RequestInfo.class);
+            return request == null ? EventListener.NONE : new OkHttpEventBridge(listener, request);
+        };
+    }
+
+    private void emit(String event) {
+        listener.onHttpEvent(request, event, System.nanoTime());
+    }
+
+    @Override
+    public void callStart(@NotNull Call call) {
+        emit("callStart");
+    }
+
+    @Override
+    public void dnsStart(@NotNull Call call, @NotNull String domainName) {
+        emit("dnsStart");
+    }
+
+    @Override
+    public void dnsEnd(@NotNull Call call, @NotNull String domainName, @NotNull List<InetAddress> inetAddressList) {
+        emit("dnsEnd");
+    }
+
+    @Override
+    public void connectStart(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy) {
+        emit("connectStart");
+    }
+
+    @Override
+    public void secureConnectStart(@NotNull Call call) {
+        emit("secureConnectStart");
+    }
+
+    @Override
+    public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+        emit("secureConnectEnd");
+    }
+
+    @Override
+    public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, @Nullable Protocol protocol) {
+        emit("connectEnd");
+    }
+
+    @Override
+    public void connectFailed(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, @Nullable Protocol protocol, @NotNull IOException ioe) {
+        emit("connectFailed");
+    }
+
+    @Override
+    public void requestHeadersStart(@NotNull Call call) {
+        emit("requestHeadersStart");
+    }
+
+    @Override
+    public void requestBodyEnd(@NotNull Call call, long byteCount) {
+        emit("requestBodyEnd");
+    }
+
+    @Override
+    public void responseHeadersStart(@NotNull Call call) {
+        emit("responseHeadersStart");
+    }
+
+    @Override
+    public void responseHeadersEnd(@NotNull Call call, @NotNull Response response) {
+        emit("responseHeadersEnd");
+    }
+
+    @Override
+    public void responseBodyEnd(@NotNull Call call, long byteCount) {
+        emit("responseBodyEnd");
+    }
+
+    @Override
+    public void callEnd(@NotNull Call call) {
+        emit("callEnd");
+    }
+
+    @Override
+    public void callFailed(@NotNull Call call, @NotNull IOException ioe) {
+        emit("callFailed");
+    }
+}
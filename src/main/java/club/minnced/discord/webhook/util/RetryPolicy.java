@@ -0,0 +1,307 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.CheckReturnValue;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy used by {@link club.minnced.discord.webhook.WebhookClient} to retry failed requests.
+ * <br>If not explicitly configured, this uses {@link #NONE}.
+ *
+ * <p>A request is retried if the response has one of the {@link #withRetryableCodes(int...) retryable codes}
+ * or the request failed with an {@link java.io.IOException}.
+ * Retries keep the position of the request in the queue, the queue is paused for the backoff delay like for a 429.
+ * The delay grows exponentially from the base delay up to the max delay and is reduced by a random jitter.
+ *
+ * <p>The retry budget limits retries to a ratio of the submitted requests, plus a reserve for occasional failures.
+ * This prevents retries from starving fresh requests while discord is unavailable.
+ *
+ * <p>Instances are immutable, each {@code withX} method returns an updated instance.
+ *
+ * <h2>Example</h2>
+ * <pre>{@code
+ * RetryPolicy policy = RetryPolicy.DEFAULT
+ *   .withMaxAttempts(5)
+ *   .withBackoff(1, 30, TimeUnit.SECONDS);
+ *
+ * WebhookClient client = new WebhookClientBuilder(url)
+ *   .setRetryPolicy(policy)
+ *   .build();
+ * }</pre>
+ *
+ * @see club.minnced.discord.webhook.WebhookClientBuilder#setRetryPolicy(RetryPolicy)
+ */
+public final class RetryPolicy {
+    /**
+     * Policy which never retries a request
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, 0, new int[0], false, 0, 0);
+
+    /**
+     * Policy with 3 attempts, a backoff of 500 ms to 10 seconds with 50% jitter,
+     * retrying I/O errors and the codes 500, 502, 503 and 504.
+     * <br>At most 20% of the requests may be retries, with a reserve of 10 retries.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 500, 10000, 0.5, new int[] {500, 502, 503, 504}, true, 0.2, 10);
+
+    private final int maxAttempts;
+    private final long baseDelay, maxDelay;
+    private final double jitter;
+    private final int[] retryableCodes; // sorted
+    private final boolean retryIOException;
+    private final double budgetRatio;
+    private final int budgetReserve;
+
+    private RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, double jitter, int[] retryableCodes,
+                        boolean retryIOException, double budgetRatio, int budgetReserve) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.jitter = jitter;
+        this.retryableCodes = retryableCodes;
+        this.retryIOException = retryIOException;
+        this.budgetRatio = budgetRatio;
+        this.budgetReserve = budgetReserve;
+    }
+
+    /**
+     * The maximum amount of attempts for each request, including the first attempt.
+     *
+     * @return The maximum attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * The delay in milliseconds before the first retry.
+     *
+     * @return The base delay
+     */
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    /**
+     * The upper bound in milliseconds for the exponential backoff.
+     *
+     * @return The max delay
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * The fraction of the delay which is randomly subtracted from each backoff.
+     *
+     * @return The jitter between 0 and 1
+     */
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * The http status codes which are retried.
+     *
+     * @return Sorted copy of the retryable codes
+     */
+    @NotNull
+    public int[] getRetryableCodes() {
+        return retryableCodes.clone();
+    }
+
+    /**
+     * Whether requests failing with an {@link java.io.IOException} are retried.
+     *
+     * @return True, if I/O errors are retried
+     */
+    public boolean isRetryIOException() {
+        return retryIOException;
+    }
+
+    /**
+     * The ratio of retries to submitted requests allowed by the retry budget.
+     *
+     * @return The budget ratio
+     */
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    /**
+     * The amount of retries the budget allows on top of the {@link #getBudgetRatio() ratio}.
+     *
+     * @return The budget reserve
+     */
+    public int getBudgetReserve() {
+        return budgetReserve;
+    }
+
+    /**
+     * Whether a response with the provided status code is retried.
+     *
+     * @param  code
+     *         The http status code
+     *
+     * @return True, if the code is retryable
+     */
+    public boolean isRetryable(int code) {
+        return Arrays.binarySearch(retryableCodes, code) >= 0;
+    }
+
+    /**
+     * Computes the jittered backoff delay before the provided retry.
+     *
+     * @param  retry
+     *         The number of the retry, starting at 1
+     *
+     * @return The delay in milliseconds
+     */
+    public long getDelay(int retry) {
+        long delay = baseDelay;
+        for (int i = 1; i < retry && delay < maxDelay; i++)
+            delay *= 2;
+        delay = Math.min(delay, maxDelay);
+        if (jitter > 0)
+            delay -= (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+        return delay;
+    }
+
+    /**
+     * Updates the maximum amount of attempts for each request, including the first attempt.
+     *
+     * @param  maxAttempts
+     *         The maximum attempts, 1 disables retries
+     *
+     * @throws IllegalArgumentException
+     *         If the attempts are not positive
+     *
+     * @return The updated policy
+     */
+    @NotNull
+    @CheckReturnValue
+    public RetryPolicy withMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Max attempts must be positive");
+        return new RetryPolicy(maxAttempts, baseDelay, maxDelay, jitter, retryableCodes, retryIOException, budgetRatio, budgetReserve);
+    }
+
+    /**
+     * Updates the exponential backoff between attempts.
+     *
+     * @param  baseDelay
+     *         The delay before the first retry
+     * @param  maxDelay
+     *         The upper bound of the delay
+     * @param  unit
+     *         The unit of the delays
+     *
+     * @throws IllegalArgumentException
+     *         If a delay is negative or the base delay exceeds the max delay
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return The updated policy
+     */
+    @NotNull
+    @CheckReturnValue
+    public RetryPolicy withBackoff(long baseDelay, long maxDelay, @NotNull TimeUnit unit) {
+        if (baseDelay < 0 || maxDelay < baseDelay)
+            throw new IllegalArgumentException("Delays must satisfy 0 <= base <= max");
+        return new RetryPolicy(maxAttempts, unit.toMillis(baseDelay), unit.toMillis(maxDelay), jitter, retryableCodes, retryIOException, budgetRatio, budgetReserve);
+    }
+
+    /**
+     * Updates the fraction of the delay which is randomly subtracted from each backoff.
+     * <br>Jitter spreads out the retries of many clients which failed at the same time.
+     *
+     * @param  jitter
+     *         The jitter between 0 (no jitter) and 1 (full jitter)
+     *
+     * @throws IllegalArgumentException
+     *         If the jitter is outside of the range
+     *
+     * @return The updated policy
+     */
+    @NotNull
+    @CheckReturnValue
+    public RetryPolicy withJitter(double jitter) {
+        if (!(jitter >= 0 && jitter <= 1))
+            throw new IllegalArgumentException("Jitter must be between 0 and 1");
+        return new RetryPolicy(maxAttempts, baseDelay, maxDelay, jitter, retryableCodes, retryIOException, budgetRatio, budgetReserve);
+    }
+
+    /**
+     * Replaces the http status codes which are retried.
+     *
+     * @param  codes
+     *         The retryable codes
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     *
+     * @return The updated policy
+     */
+    @NotNull
+    @CheckReturnValue
+    public RetryPolicy withRetryableCodes(@NotNull int... codes) {
+        int[] sorted = Arrays.stream(codes).sorted().distinct().toArray();
+        return new RetryPolicy(maxAttempts, baseDelay, maxDelay, jitter, sorted, retryIOException, budgetRatio, budgetReserve);
+    }
+
+    /**
+     * Whether requests failing with an {@link java.io.IOException} are retried.
+     *
+     * @param  retry
+     *         True, if I/O errors should be retried
+     *
+     * @return The updated policy
+     */
+    @NotNull
+    @CheckReturnValue
+    public RetryPolicy withRetryIOException(boolean retry) {
+        return new RetryPolicy(maxAttempts, baseDelay, maxDelay, jitter, retryableCodes, retry, budgetRatio, budgetReserve);
+    }
+
+    /**
+     * Updates the retry budget.
+     * <br>Each submitted request adds {@code ratio} to the budget, each retry takes 1 from it.
+     * The budget starts with {@code reserve} retries and never holds more than {@code max(reserve, 1)}.
+     *
+     * @param  ratio
+     *         The ratio of retries to submitted requests
+     * @param  reserve
+     *         The amount of retries available without prior requests
+     *
+     * @throws IllegalArgumentException
+     *         If the ratio or the reserve is negative
+     *
+     * @return The updated policy
+     */
+    @NotNull
+    @CheckReturnValue
+    public RetryPolicy withBudget(double ratio, int reserve) {
+        if (!(ratio >= 0) || reserve < 0)
+            throw new IllegalArgumentException("Budget must not be negative");
+        return new RetryPolicy(maxAttempts, baseDelay, maxDelay, jitter, retryableCodes, retryIOException, ratio, reserve);
+    }
+}
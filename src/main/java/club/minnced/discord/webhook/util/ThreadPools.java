@@ -16,15 +16,160 @@
 
 package club.minnced.discord.webhook.util;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ThreadPools { // internal utils
+    private static volatile ScheduledExecutorService timeoutPool;
+    private static volatile ExecutorService attachmentPool;
+    private static volatile ExecutorService uploadPool;
+
     public static ScheduledExecutorService getDefaultPool(long id, ThreadFactory factory, boolean isDaemon) {
         return Executors.newSingleThreadScheduledExecutor(factory == null ? new DefaultWebhookThreadFactory(id, isDaemon) : factory);
     }
 
+    public static ShardPool getShardPool(int shardId, int shardCount, ThreadFactory factory, boolean isDaemon) {
+        return new ShardPool(factory == null ? new ShardThreadFactory(shardId, shardCount, isDaemon) : factory);
+    }
+
+    /**
+     * Daemon pool shared by all webhook clients to evict queued requests once their deadline passes.
+     * <br>The pool of a client cannot be used for this, it might be blocked by the request which is currently executed.
+     */
+    public static ScheduledExecutorService getTimeoutPool() {
+        ScheduledExecutorService pool = timeoutPool;
+        if (pool == null) {
+            synchronized (ThreadPools.class) {
+                pool = timeoutPool;
+                if (pool == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                        Thread thread = new Thread(r, "Webhook-Timeout Thread");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.setRemoveOnCancelPolicy(true);
+                    timeoutPool = pool = executor;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Daemon pool shared by all webhook clients to prepare attachments before they are uploaded.
+     * <br>The pool is bounded to the available processors, senders run the task themselves once its queue is full.
+     */
+    public static ExecutorService getAttachmentPool() {
+        ExecutorService pool = attachmentPool;
+        if (pool == null) {
+            synchronized (ThreadPools.class) {
+                pool = attachmentPool;
+                if (pool == null) {
+                    int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+                    AtomicInteger count = new AtomicInteger();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(256), r -> {
+                        Thread thread = new Thread(r, "Webhook-Attachment Thread " + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    attachmentPool = pool = executor;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Daemon pool shared by all transports which stream request bodies to their http client.
+     * <br>The pool is unbounded, each task blocks until the http client consumed the body or the request ended.
+     */
+    public static ExecutorService getUploadPool() {
+        ExecutorService pool = uploadPool;
+        if (pool == null) {
+            synchronized (ThreadPools.class) {
+                pool = uploadPool;
+                if (pool == null) {
+                    AtomicInteger count = new AtomicInteger();
+                    uploadPool = pool = Executors.newCachedThreadPool(r -> {
+                        Thread thread = new Thread(r, "Webhook-Upload Thread " + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Single-threaded pool shared by all webhook clients of one shard.
+     * <br>The pool is reference counted, the creator holds the first reference and each client on the shard {@link #retain() retains} another.
+     * Clients {@link #release() release} their reference on close instead of shutting down the pool,
+     * the pool is shut down once the last reference is released.
+     *
+     * <p>A shard only shares the thread, each client keeps its own queue and rate-limit bucket.
+     * The thread only runs the drains of the clients, which suspend while their requests are in flight.
+     */
+    public static final class ShardPool extends ScheduledThreadPoolExecutor {
+        private final AtomicInteger references = new AtomicInteger(1); // held by the creator
+
+        public ShardPool(ThreadFactory factory) {
+            super(1, factory);
+            setRemoveOnCancelPolicy(true);
+        }
+
+        /**
+         * Adds a reference to this pool.
+         *
+         * @return False, if the last reference was already released and the pool is shut down
+         */
+        public boolean retain() {
+            for (;;) {
+                int current = references.get();
+                if (current == 0)
+                    return false;
+                if (references.compareAndSet(current, current + 1))
+                    return true;
+            }
+        }
+
+        /**
+         * Releases a reference to this pool, the last release shuts down the pool.
+         * <br>Queued tasks are still executed after the shutdown, like with {@link #shutdown()}.
+         */
+        public void release() {
+            if (references.decrementAndGet() == 0)
+                shutdown();
+        }
+    }
+
+    public static final class ShardThreadFactory implements ThreadFactory {
+        private final int shardId;
+        private final int shardCount;
+        private final boolean isDaemon;
+
+        public ShardThreadFactory(int shardId, int shardCount, boolean isDaemon) {
+            this.shardId = shardId;
+            this.shardCount = shardCount;
+            this.isDaemon = isDaemon;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "Webhook-RateLimit Thread Shard: " + shardId + "/" + shardCount);
+            thread.setDaemon(isDaemon);
+            return thread;
+        }
+    }
+
     public static final class DefaultWebhookThreadFactory implements ThreadFactory {
         private final long id;
         private final boolean isDaemon;
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link WebhookClock} which only moves when it is {@link #advance(long, TimeUnit) advanced} explicitly.
+ *
+ * <p>This is intended for tests of the rate-limit, retry and deadline handling.
+ * Time based decisions of the client, like {@link club.minnced.discord.webhook.WebhookClient#isRateLimited()}
+ * or the expiration of queued requests, are made with this clock and become deterministic.
+ * Delayed tasks, like the end of a backoff or the timeout of a request, are held by this clock
+ * and handed to their executor once {@link #advance(long, TimeUnit)} reaches them, so tests never wait for the real delay.
+ */
+public class VirtualClock implements WebhookClock {
+    private final AtomicLong nanos;
+    private final PriorityQueue<Pending> pending = new PriorityQueue<>(); // guarded by itself
+    private long sequence; // keeps tasks with the same due time in order of scheduling
+
+    /**
+     * Creates a clock starting at 0.
+     */
+    public VirtualClock() {
+        this(0);
+    }
+
+    /**
+     * Creates a clock starting at the provided time.
+     *
+     * @param  nanos
+     *         The initial time in nanoseconds
+     */
+    public VirtualClock(long nanos) {
+        this.nanos = new AtomicLong(nanos);
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos.get();
+    }
+
+    @NotNull
+    @Override
+    public Future<?> schedule(@NotNull ScheduledExecutorService executor, @NotNull Runnable task, long delay, @NotNull TimeUnit unit) {
+        FutureTask<?> future = new FutureTask<>(task, null);
+        if (delay <= 0) {
+            executor.execute(future);
+            return future;
+        }
+        synchronized (pending) {
+            pending.add(new Pending(nanos.get() + unit.toNanos(delay), sequence++, executor, future));
+        }
+        return future;
+    }
+
+    /**
+     * The amount of delayed tasks which have not been reached by this clock yet, including cancelled tasks.
+     *
+     * @return The amount of pending tasks
+     */
+    public int getPendingTasks() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Moves this clock forward by the provided amount.
+     *
+     * @param  amount
+     *         The amount of time
+     * @param  unit
+     *         The unit of the amount
+     *
+     * @throws IllegalArgumentException
+     *         If the amount is negative
+     *
+     * @return The current clock, for chaining convenience
+     */
+    @NotNull
+    public VirtualClock advance(long amount, @NotNull TimeUnit unit) {
+        if (amount < 0)
+            throw new IllegalArgumentException("Cannot move the clock backwards");
+        final long now = nanos.addAndGet(unit.toNanos(amount));
+        final List<Pending> due = new ArrayList<>();
+        synchronized (pending) {
+            while (!pending.isEmpty() && pending.peek().due - now <= 0)
+                due.add(pending.poll());
+        }
+        for (Pending task : due) {
+            if (task.future.isCancelled())
+                continue;
+            try {
+                task.executor.execute(task.future);
+            }
+            catch (RejectedExecutionException ex) { // the executor was shut down, like it drops delayed tasks
+                task.future.cancel(false);
+            }
+        }
+        return this;
+    }
+
+    private static final class Pending implements Comparable<Pending> {
+        private final long due, sequence;
+        private final ScheduledExecutorService executor;
+        private final FutureTask<?> future;
+
+        private Pending(long due, long sequence, ScheduledExecutorService executor, FutureTask<?> future) {
+            this.due = due;
+            this.sequence = sequence;
+            this.executor = executor;
+            this.future = future;
+        }
+
+        @Override
+        public int compareTo(@NotNull Pending other) {
+            int order = Long.compare(due - other.due, 0);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+}
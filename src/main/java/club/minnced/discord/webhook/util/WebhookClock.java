@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monotonic time source used by {@link club.minnced.discord.webhook.WebhookClient} for rate-limits and request deadlines.
+ * <br>If not explicitly configured, this uses {@link #SYSTEM}.
+ *
+ * <p>The values are only meaningful as differences between two calls, like {@link System#nanoTime()}.
+ * Delayed tasks of the client, like the end of a rate-limit backoff or the deadline of a request,
+ * are {@link #schedule(ScheduledExecutorService, Runnable, long, TimeUnit) scheduled} with the same clock.
+ * Tests can use a {@link VirtualClock} to control the time observed by a client.
+ *
+ * @see club.minnced.discord.webhook.WebhookClientBuilder#setClock(WebhookClock)
+ */
+@FunctionalInterface
+public interface WebhookClock {
+    /**
+     * The default clock based on {@link System#nanoTime()}
+     */
+    WebhookClock SYSTEM = System::nanoTime;
+
+    /**
+     * The current value of this clock in nanoseconds.
+     *
+     * @return The current time in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * Runs the task on the provided executor once this clock has moved forward by the provided delay.
+     * <br>The default implementation uses {@link ScheduledExecutorService#schedule(Runnable, long, TimeUnit)},
+     * which is correct for clocks that move in real time.
+     *
+     * @param  executor
+     *         The executor which runs the task
+     * @param  task
+     *         The task to run
+     * @param  delay
+     *         The delay, zero or negative values run the task as soon as possible
+     * @param  unit
+     *         The unit of the delay
+     *
+     * @throws java.util.concurrent.RejectedExecutionException
+     *         If the executor does not accept the task
+     *
+     * @return Future which can be used to cancel the task
+     */
+    @NotNull
+    default Future<?> schedule(@NotNull ScheduledExecutorService executor, @NotNull Runnable task, long delay, @NotNull TimeUnit unit) {
+        return executor.schedule(task, delay, unit);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.util;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookCluster;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Receives the lifecycle events of the requests executed by a {@link WebhookClient}.
+ * <br>All methods have empty default implementations, only override the events you need.
+ *
+ * <p>Each event carries a timestamp in nanoseconds of the {@link WebhookClient#getClock() client clock},
+ * the differences between the events of a request make up its latency:
+ * <ol>
+ *     <li>{@link #onEnqueue(WebhookClient, RequestInfo, long) enqueue} to {@link #onDequeue(WebhookClient, RequestInfo, long) dequeue} is the time spent in the queue, including rate-limit backoff</li>
+ *     <li>{@link #onDequeue(WebhookClient, RequestInfo, long) dequeue} to {@link #onRequestStart(WebhookClient, RequestInfo, long) request start} is the time spent building the request</li>
+ *     <li>{@link #onRequestStart(WebhookClient, RequestInfo, long) request start} to {@link #onResponseHeaders(WebhookClient, RequestInfo, int, long) response headers} is the http round trip, including the upload of the body</li>
+ *     <li>{@link #onResponseHeaders(WebhookClient, RequestInfo, int, long) response headers} to {@link #onParseDone(WebhookClient, RequestInfo, long) parse done} is the time spent reading and parsing the message</li>
+ * </ol>
+ * Requests which are retried or hit a rate-limit emit the request events once per attempt.
+ *
+ * <p>The events are called on the thread of the client, implementations must be fast and must not throw.
+ * Clients without a listener do not create any events.
+ * Clients created by {@link WebhookClient#onThread(long)} are executed by their parent and use its listener.
+ *
+ * <p>Use {@link OkHttpEventBridge} to receive the connection events of OkHttp for the same requests.
+ *
+ * @see club.minnced.discord.webhook.WebhookClientBuilder#setEventListener(WebhookEventListener)
+ * @see WebhookClient#setEventListener(WebhookEventListener)
+ */
+public interface WebhookEventListener {
+    /**
+     * Called once a request has been added to the queue.
+     *
+     * @param client
+     *        The client which queued the request
+     * @param request
+     *        The request
+     * @param nanos
+     *        The timestamp of the event
+     */
+    default void onEnqueue(@NotNull WebhookClient client, @NotNull RequestInfo request, long nanos) {}
+
+    /**
+     * Called once a request reached the head of the queue and is about to be executed.
+     *
+     * @param client
+     *        The client which executes the request
+     * @param request
+     *        The request
+     * @param nanos
+     *        The timestamp of the event
+     */
+    default void onDequeue(@NotNull WebhookClient client, @NotNull RequestInfo request, long nanos) {}
+
+    /**
+     * Called once the queue is paused due to a rate-limit or a retry backoff.
+     *
+     * @param client
+     *        The client which paused the queue
+     * @param delayNanos
+     *        The planned duration of the backoff in nanoseconds
+     * @param nanos
+     *        The timestamp of the event
+     */
+    default void onBackoffStart(@NotNull WebhookClient client, long delayNanos, long nanos) {}
+
+    /**
+     * Called once the queue resumes after a backoff.
+     *
+     * @param client
+     *        The client which resumed the queue
+     * @param nanos
+     *        The timestamp of the event
+     */
+    default void onBackoffEnd(@NotNull WebhookClient client, long nanos) {}
+
+    /**
+     * Called right before the request is passed to the {@link club.minnced.discord.webhook.transport.WebhookTransport transport}.
+     *
+     * @param client
+     *        The client which executes the request
+     * @param request
+     *        The request
+     * @param nanos
+     *        The timestamp of the event
+     */
+    default void onRequestStart(@NotNull WebhookClient client, @NotNull RequestInfo request, long nanos) {}
+
+    /**
+     * Called once the response headers have been received and the rate-limit of the client has been updated.
+     *
+     * @param client
+     *        The client which executes the request
+     * @param request
+     *        The request
+     * @param code
+     *        The http status code
+     * @param nanos
+     *        The timestamp of the event
+     */
+    default void onResponseHeaders(@NotNull WebhookClient client, @NotNull RequestInfo request, int code, long nanos) {}
+
+    /**
+     * Called once the response body has been parsed to a {@link club.minnced.discord.webhook.receive.ReadonlyMessage}.
+     * <br>This is not called if the client does not {@link WebhookClient#isWait() wait} for messages.
+     *
+     * @param client
+     *        The client which executes the request
+     * @param request
+     *        The request
+     * @param nanos
+     *        The timestamp of the event
+     */
+    default void onParseDone(@NotNull WebhookClient client, @NotNull RequestInfo request, long nanos) {}
+
+    /**
+     * Called once a message of the request is completed, right before its future is completed.
+     * <br>Batch requests complete once for each executed message,
+     * the remaining messages of a batch which times out or dies complete together.
+     *
+     * @param client
+     *        The client which executed the request
+     * @param request
+     *        The request
+     * @param error
+     *        The failure, or null if the message was sent successfully
+     * @param nanos
+     *        The timestamp of the event
+     */
+    default void onComplete(@NotNull WebhookClient client, @NotNull RequestInfo request, @Nullable Throwable error, long nanos) {}
+
+    /**
+     * Called once a {@link WebhookCluster} queued a {@link club.minnced.discord.webhook.send.WebhookMessage WebhookMessage}
+     * to all targets of a broadcast or multicast.
+     *
+     * @param cluster
+     *        The cluster
+     * @param targets
+     *        The amount of targeted clients
+     * @param startNanos
+     *        The timestamp at the start of the fan-out, measured with {@link System#nanoTime()}
+     * @param nanos
+     *        The timestamp at the end of the fan-out, measured with {@link System#nanoTime()}
+     *
+     * @see WebhookCluster#setEventListener(WebhookEventListener)
+     */
+    default void onBroadcast(@NotNull WebhookCluster cluster, int targets, long startNanos, long nanos) {}
+
+    /**
+     * Called by {@link OkHttpEventBridge} for the events of the OkHttp call executing the request.
+     *
+     * @param request
+     *        The request
+     * @param event
+     *        The name of the {@link okhttp3.EventListener} method, for example {@code "dnsStart"} or {@code "secureConnectEnd"}
+     * @param nanos
+     *        The timestamp of the event, measured with {@link System#nanoTime()}
+     */
+    default void onHttpEvent(@NotNull RequestInfo request, @NotNull String event, long nanos) {}
+
+    /**
+     * Information about a queued request, which can be used to correlate the events of the same request by identity.
+     */
+    interface RequestInfo {
+        /**
+         * The http method of the request.
+         *
+         * @return The http method
+         */
+        @NotNull
+        String getMethod();
+
+        /**
+         * The amount of messages handled by this request, greater than 1 for batch requests.
+         *
+         * @return The amount of messages
+         */
+        int getMessageCount();
+
+        /**
+         * The amount of retries of the current message.
+         *
+         * @return The amount of retries
+         */
+        int getRetries();
+    }
+}
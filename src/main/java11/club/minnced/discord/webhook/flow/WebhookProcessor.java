@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.flow;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import club.minnced.discord.webhook.send.WebhookMessage;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Flow.Processor} which sends the received {@link WebhookMessage WebhookMessages} with a {@link WebhookClient}
+ * and publishes the resulting {@link ReadonlyMessage ReadonlyMessages}.
+ * <br>This class requires Java 11 or later, it is only loaded if it is used explicitly.
+ *
+ * <p>Demand is signalled based on the state of the client, the upstream is only requested for more messages if
+ * <ul>
+ *     <li>fewer than {@code maxInFlight} messages of this processor are pending,</li>
+ *     <li>the request queue of the client holds fewer than {@code maxInFlight} requests, including requests of other senders,</li>
+ *     <li>and the rate-limit of the webhook is not exhausted.</li>
+ * </ul>
+ * Otherwise, demand is signalled once a pending message completes or the rate-limit resets.
+ *
+ * <p>The results are published in the order of the received messages.
+ * If the client does not {@link WebhookClient#isWait() wait} for messages, no results are published.
+ * Results are handed to the subscribers on the {@link #getExecutor() executor} of the publisher, never on the thread of the client.
+ * A subscriber which lags behind by more than its buffer capacity delays the delivery, and the pending results count
+ * towards {@code maxInFlight}, so a slow subscriber stops the demand instead of blocking the request queue.
+ * The first failed request cancels the upstream and completes the subscribers exceptionally,
+ * like {@link #closeExceptionally(Throwable)} this might drop earlier results which a subscriber has not consumed yet.
+ *
+ * <h2>Example</h2>
+ * <pre>{@code
+ * WebhookProcessor processor = new WebhookProcessor(client);
+ * processor.subscribe(resultSubscriber);
+ * messagePublisher.subscribe(processor);
+ * }</pre>
+ */
+public class WebhookProcessor extends SubmissionPublisher<ReadonlyMessage> implements Flow.Processor<WebhookMessage, ReadonlyMessage> {
+    /** The default amount of messages kept in flight (5), equal to the webhook rate-limit of discord */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 5;
+
+    private static final long POLL_DELAY = 50;
+
+    private final WebhookClient client;
+    private final int maxInFlight;
+    private Flow.Subscription subscription;
+    private int requested, inFlight;
+    private boolean upstreamDone, scheduled;
+    private CompletableFuture<Void> delivery = CompletableFuture.completedFuture(null); // results in the order of the messages
+
+    /**
+     * Creates a processor with {@value #DEFAULT_MAX_IN_FLIGHT} messages in flight.
+     *
+     * @param  client
+     *         The client used to send the messages
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     */
+    public WebhookProcessor(@NotNull WebhookClient client) {
+        this(client, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Creates a processor with the provided amount of messages in flight.
+     *
+     * @param  client
+     *         The client used to send the messages
+     * @param  maxInFlight
+     *         The maximum amount of messages which are queued at the same time
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     * @throws IllegalArgumentException
+     *         If maxInFlight is not positive
+     */
+    public WebhookProcessor(@NotNull WebhookClient client, int maxInFlight) {
+        this.client = Objects.requireNonNull(client, "Client");
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("Max in flight must be positive");
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * The client used to send the messages
+     *
+     * @return The client
+     */
+    @NotNull
+    public WebhookClient getClient() {
+        return client;
+    }
+
+    @Override
+    public void onSubscribe(@NotNull Flow.Subscription subscription) {
+        synchronized (this) {
+            if (this.subscription != null || isClosed()) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        }
+        requestMore();
+    }
+
+    @Override
+    public void onNext(@NotNull WebhookMessage message) {
+        CompletableFuture<ReadonlyMessage> future;
+        synchronized (this) {
+            requested--;
+            inFlight++;
+        }
+        try {
+            future = client.send(message);
+        }
+        catch (Throwable ex) { // rejected by closed client
+            onSent(null, ex);
+            return;
+        }
+        future.whenComplete(this::onSent);
+    }
+
+    @Override
+    public void onError(@NotNull Throwable throwable) {
+        synchronized (this) {
+            upstreamDone = true;
+        }
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        boolean done;
+        synchronized (this) {
+            upstreamDone = true;
+            done = inFlight == 0;
+        }
+        if (done)
+            close();
+    }
+
+    // Usually called by the drain of the client, which must never wait for a subscriber
+    private void onSent(ReadonlyMessage message, Throwable error) {
+        synchronized (this) {
+            delivery = delivery.thenRunAsync(() -> deliver(message, error), getExecutor());
+        }
+    }
+
+    // A message stays in flight until its result is handed to the subscribers
+    private void deliver(ReadonlyMessage message, Throwable error) {
+        if (error != null) {
+            cancelUpstream();
+            closeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            return;
+        }
+        if (message != null && !isClosed()) {
+            try {
+                submit(message); // blocks the delivery if a subscriber lags behind by more than the buffer capacity
+            }
+            catch (IllegalStateException ignored) {} // closed concurrently by the upstream
+        }
+
+        boolean done;
+        synchronized (this) {
+            inFlight--;
+            done = upstreamDone && inFlight == 0;
+        }
+        if (done)
+            close();
+        else
+            requestMore();
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription;
+        synchronized (this) {
+            upstreamDone = true;
+            subscription = this.subscription;
+        }
+        if (subscription != null)
+            subscription.cancel();
+    }
+
+    private void requestMore() {
+        Flow.Subscription subscription;
+        int amount;
+        long delay = 0;
+        synchronized (this) {
+            subscription = this.subscription;
+            if (subscription == null || upstreamDone || scheduled || isClosed())
+                return;
+
+            int queued = Math.max(inFlight, client.getQueueSize());
+            amount = maxInFlight - queued - requested;
+            if (client.isRateLimited()) {
+                amount = 0;
+                delay = Math.max(POLL_DELAY, client.getRetryAfter());
+            }
+            else if (amount <= 0 && inFlight == 0 && requested == 0) {
+                // The queue is filled by other senders, none of our messages will complete to trigger new demand
+                delay = POLL_DELAY;
+            }
+
+            if (amount > 0)
+                requested += amount;
+            else if (delay > 0 && inFlight == 0)
+                scheduled = true;
+            else
+                return;
+        }
+
+        if (amount > 0) {
+            subscription.request(amount);
+        }
+        else {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                requestMore();
+            });
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.jfr;
+
+import jdk.jfr.*;
+
+@Name("club.minnced.discord.webhook.Broadcast")
+@Label("Webhook Broadcast")
+@Category({"Discord", "Webhooks"})
+@Description("Fan-out of a message to the targets of a broadcast or multicast")
+@StackTrace(false)
+final class BroadcastEvent extends Event {
+    @Label("Targets")
+    int targets;
+
+    @Label("Fan-out Time")
+    @Description("Time spent queueing the message to all targets")
+    @Timespan(Timespan.NANOSECONDS)
+    long fanOutTime;
+}
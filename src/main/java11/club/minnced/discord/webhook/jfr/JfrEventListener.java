@@ -0,0 +1,205 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.jfr;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookCluster;
+import club.minnced.discord.webhook.util.WebhookEventListener;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link WebhookEventListener} which emits Java Flight Recorder events.
+ * <br>This class requires Java 11 or later, it is only loaded if it is used explicitly.
+ *
+ * <p>The events are in the category {@code Discord / Webhooks}:
+ * <ul>
+ *     <li>{@code club.minnced.discord.webhook.Send} for the http round trip of each request</li>
+ *     <li>{@code club.minnced.discord.webhook.Backoff} while the queue of a webhook is paused</li>
+ *     <li>{@code club.minnced.discord.webhook.RateLimited} for each 429 response</li>
+ *     <li>{@code club.minnced.discord.webhook.QueueDepth} as a periodic sample of each webhook queue</li>
+ *     <li>{@code club.minnced.discord.webhook.Broadcast} for the fan-out of cluster broadcasts</li>
+ * </ul>
+ * Each event is only created if it is enabled in the running recording, otherwise the hooks return after a single check.
+ * Webhooks are sampled for the queue depth once they queued a request while the event is enabled.
+ *
+ * <h2>Example</h2>
+ * <pre>{@code
+ * WebhookClient client = JfrEventListener.install(WebhookClient.withUrl(url));
+ * WebhookCluster cluster = JfrEventListener.install(new WebhookCluster());
+ * }</pre>
+ */
+public class JfrEventListener implements WebhookEventListener {
+    private static final JfrEventListener INSTANCE = new JfrEventListener();
+
+    private static final EventType SEND = EventType.getEventType(WebhookSendEvent.class);
+    private static final EventType BACKOFF = EventType.getEventType(RateLimitBackoffEvent.class);
+    private static final EventType RATE_LIMITED = EventType.getEventType(RateLimitedEvent.class);
+    private static final EventType QUEUE_DEPTH = EventType.getEventType(QueueDepthEvent.class);
+    private static final EventType BROADCAST = EventType.getEventType(BroadcastEvent.class);
+
+    private final Map<RequestInfo, WebhookSendEvent> sends = new ConcurrentHashMap<>();
+    private final Map<WebhookClient, RateLimitBackoffEvent> backoffs = new ConcurrentHashMap<>();
+    private final Set<WebhookClient> sampled = Collections.newSetFromMap(new WeakHashMap<>()); // guarded by itself
+
+    static {
+        FlightRecorder.addPeriodicEvent(QueueDepthEvent.class, INSTANCE::sampleQueues);
+    }
+
+    private JfrEventListener() {}
+
+    /**
+     * The shared listener instance.
+     *
+     * @return The listener
+     */
+    @NotNull
+    public static JfrEventListener getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Configures the provided client to emit flight recorder events.
+     *
+     * @param  client
+     *         The client
+     * @param  <T>
+     *         The type of client
+     *
+     * @return The same client, for chaining convenience
+     */
+    @NotNull
+    public static <T extends WebhookClient> T install(@NotNull T client) {
+        client.setEventListener(INSTANCE);
+        return client;
+    }
+
+    /**
+     * Configures the provided cluster, and the clients it builds, to emit flight recorder events.
+     * <br>Clients which are added to the cluster have to be {@link #install(WebhookClient) installed} separately.
+     *
+     * @param  cluster
+     *         The cluster
+     *
+     * @return The same cluster, for chaining convenience
+     */
+    @NotNull
+    public static WebhookCluster install(@NotNull WebhookCluster cluster) {
+        cluster.setEventListener(INSTANCE);
+        return cluster;
+    }
+
+    @Override
+    public void onEnqueue(@NotNull WebhookClient client, @NotNull RequestInfo request, long nanos) {
+        if (!QUEUE_DEPTH.isEnabled())
+            return;
+        synchronized (sampled) {
+            sampled.add(client);
+        }
+    }
+
+    @Override
+    public void onRequestStart(@NotNull WebhookClient client, @NotNull RequestInfo request, long nanos) {
+        if (!SEND.isEnabled())
+            return;
+        WebhookSendEvent event = new WebhookSendEvent();
+        event.webhookId = client.getId();
+        event.method = request.getMethod();
+        event.retries = request.getRetries();
+        event.begin();
+        sends.put(request, event);
+    }
+
+    @Override
+    public void onResponseHeaders(@NotNull WebhookClient client, @NotNull RequestInfo request, int code, long nanos) {
+        commitSend(request, code);
+        if (code == 429 && RATE_LIMITED.isEnabled()) {
+            RateLimitedEvent event = new RateLimitedEvent();
+            event.webhookId = client.getId();
+            event.retryAfter = Math.max(0, client.getRetryAfter());
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onComplete(@NotNull WebhookClient client, @NotNull RequestInfo request, @Nullable Throwable error, long nanos) {
+        commitSend(request, 0); // failed without a response
+    }
+
+    @Override
+    public void onBackoffStart(@NotNull WebhookClient client, long delayNanos, long nanos) {
+        if (!BACKOFF.isEnabled())
+            return;
+        RateLimitBackoffEvent event = new RateLimitBackoffEvent();
+        event.webhookId = client.getId();
+        event.plannedDelay = delayNanos;
+        event.begin();
+        backoffs.put(client, event);
+    }
+
+    @Override
+    public void onBackoffEnd(@NotNull WebhookClient client, long nanos) {
+        RateLimitBackoffEvent event = backoffs.remove(client);
+        if (event != null)
+            event.commit();
+    }
+
+    @Override
+    public void onBroadcast(@NotNull WebhookCluster cluster, int targets, long startNanos, long nanos) {
+        if (!BROADCAST.isEnabled())
+            return;
+        BroadcastEvent event = new BroadcastEvent();
+        event.targets = targets;
+        event.fanOutTime = nanos - startNanos;
+        event.commit();
+    }
+
+    private void commitSend(RequestInfo request, int code) {
+        if (sends.isEmpty())
+            return;
+        WebhookSendEvent event = sends.remove(request);
+        if (event != null) {
+            event.statusCode = code;
+            event.commit();
+        }
+    }
+
+    private void sampleQueues() {
+        List<WebhookClient> clients;
+        synchronized (sampled) {
+            clients = new ArrayList<>(sampled);
+        }
+        for (WebhookClient client : clients) {
+            if (client.isShutdown()) {
+                synchronized (sampled) {
+                    sampled.remove(client);
+                }
+                continue;
+            }
+            QueueDepthEvent event = new QueueDepthEvent();
+            event.webhookId = client.getId();
+            event.queueSize = client.getQueueSize();
+            event.rateLimited = client.isRateLimited();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.jfr;
+
+import jdk.jfr.*;
+
+@Name("club.minnced.discord.webhook.QueueDepth")
+@Label("Webhook Queue Depth")
+@Category({"Discord", "Webhooks"})
+@Description("Periodic sample of the request queue of a webhook")
+@Period("1 s")
+@StackTrace(false)
+final class QueueDepthEvent extends Event {
+    @Label("Webhook ID")
+    long webhookId;
+
+    @Label("Queue Size")
+    int queueSize;
+
+    @Label("Rate-Limited")
+    boolean rateLimited;
+}
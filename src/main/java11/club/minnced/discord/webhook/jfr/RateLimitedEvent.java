@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.jfr;
+
+import jdk.jfr.*;
+
+@Name("club.minnced.discord.webhook.RateLimited")
+@Label("Webhook Rate-Limited")
+@Category({"Discord", "Webhooks"})
+@Description("Webhook request answered with 429 Too Many Requests")
+@StackTrace(false)
+final class RateLimitedEvent extends Event {
+    @Label("Webhook ID")
+    long webhookId;
+
+    @Label("Retry After")
+    @Timespan(Timespan.MILLISECONDS)
+    long retryAfter;
+}
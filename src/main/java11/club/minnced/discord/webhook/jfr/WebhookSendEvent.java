@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.jfr;
+
+import jdk.jfr.*;
+
+@Name("club.minnced.discord.webhook.Send")
+@Label("Webhook Send")
+@Category({"Discord", "Webhooks"})
+@Description("HTTP round trip of a webhook request, from the start of the request to the response headers")
+@StackTrace(false)
+final class WebhookSendEvent extends Event {
+    @Label("Webhook ID")
+    long webhookId;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status Code")
+    @Description("The http status code, or 0 if the request failed without a response")
+    int statusCode;
+
+    @Label("Retries")
+    int retries;
+}
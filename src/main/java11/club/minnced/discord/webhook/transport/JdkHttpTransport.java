@@ -0,0 +1,250 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package club.minnced.discord.webhook.transport;
+
+import club.minnced.discord.webhook.util.ThreadPools;
+import okhttp3.*;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Pipe;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * {@link WebhookTransport} implementation which executes requests with the {@link HttpClient} of Java 11.
+ * <br>This class requires Java 11 or later, it is only loaded if it is used explicitly.
+ *
+ * <p>Requests are sent with {@link HttpClient#sendAsync(HttpRequest, HttpResponse.BodyHandler)},
+ * which multiplexes the requests of all webhook clients on a shared HTTP/2 connection.
+ * {@link Exchange#executeAsync()} does not block the calling thread, the drain of a client is resumed by the http client.
+ *
+ * <p>Request bodies are streamed, a daemon thread writes the body into a bounded pipe while the http client reads it,
+ * so attachments are not copied into memory first.
+ * Response bodies are buffered in memory, webhook responses are small json documents.
+ */
+public class JdkHttpTransport implements WebhookTransport {
+    private static final long PIPE_SIZE = 64 * 1024;
+
+    private final HttpClient client;
+    private final Duration timeout;
+
+    /**
+     * Creates a transport with a new HTTP/2 client and a request timeout of 30 seconds.
+     */
+    public JdkHttpTransport() {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build(), Duration.ofSeconds(30));
+    }
+
+    /**
+     * Creates a transport for the provided client.
+     *
+     * @param  client
+     *         The http client to use
+     * @param  timeout
+     *         The timeout for each request
+     *
+     * @throws NullPointerException
+     *         If null is provided
+     */
+    public JdkHttpTransport(@NotNull HttpClient client, @NotNull Duration timeout) {
+        this.client = Objects.requireNonNull(client, "Client");
+        this.timeout = Objects.requireNonNull(timeout, "Timeout");
+    }
+
+    /**
+     * The http client used by this transport
+     *
+     * @return The http client
+     */
+    @NotNull
+    public HttpClient getClient() {
+        return client;
+    }
+
+    @NotNull
+    @Override
+    public Exchange newExchange(@NotNull Request request) {
+        return new JdkExchange(request);
+    }
+
+    private static Response toResponse(Request request, HttpResponse<byte[]> response) {
+        Headers.Builder headers = new Headers.Builder();
+        for (Map.Entry<String, List<String>> entry : response.headers().map().entrySet()) {
+            if (entry.getKey().startsWith(":")) // HTTP/2 pseudo headers
+                continue;
+            for (String value : entry.getValue())
+                headers.addUnsafeNonAscii(entry.getKey(), value);
+        }
+
+        MediaType type = response.headers().firstValue("content-type").map(MediaType::parse).orElse(null);
+        return new Response.Builder()
+                .request(request)
+                .protocol(response.version() == HttpClient.Version.HTTP_2 ? Protocol.HTTP_2 : Protocol.HTTP_1_1)
+                .code(response.statusCode())
+                .message("")
+                .headers(headers.build())
+                .body(ResponseBody.create(response.body(), type))
+                .build();
+    }
+
+    private final class JdkExchange implements Exchange {
+        private final Request request;
+        private volatile CompletableFuture<HttpResponse<byte[]>> future;
+        private volatile Pipe pipe;
+        private volatile boolean canceled, done;
+
+        private JdkExchange(Request request) {
+            this.request = request;
+        }
+
+        @NotNull
+        @Override
+        public Response execute() throws IOException {
+            CompletableFuture<Response> response = executeAsync();
+            try {
+                return response.get();
+            }
+            catch (InterruptedException ex) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for response");
+            }
+            catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                throw new IOException(cause);
+            }
+        }
+
+        @NotNull
+        @Override
+        public CompletableFuture<Response> executeAsync() {
+            if (canceled)
+                return CompletableFuture.failedFuture(new IOException("Canceled"));
+            CompletableFuture<HttpResponse<byte[]>> future;
+            try {
+                future = client.sendAsync(toJdkRequest(), HttpResponse.BodyHandlers.ofByteArray());
+            }
+            catch (IllegalArgumentException ex) { // restricted header or unsupported url
+                return CompletableFuture.failedFuture(new IOException(ex));
+            }
+            this.future = future;
+            if (canceled) // cancel() might have missed the future
+                future.cancel(true);
+            return future.handle((response, error) -> {
+                done = true;
+                Pipe pipe = this.pipe;
+                if (pipe != null) // stops the writer if the body was not consumed
+                    pipe.cancel();
+                if (error == null)
+                    return toResponse(request, response);
+                throw new CompletionException(toIOException(error));
+            });
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            CompletableFuture<HttpResponse<byte[]>> future = this.future;
+            if (future != null)
+                future.cancel(true);
+        }
+
+        private HttpRequest toJdkRequest() {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(request.url().uri()).timeout(timeout);
+            for (String name : request.headers().names()) {
+                for (String value : request.headers(name))
+                    builder.header(name, value);
+            }
+
+            RequestBody body = request.body();
+            long length = getContentLength(body);
+            if (body == null || length == 0) {
+                builder.method(request.method(), HttpRequest.BodyPublishers.noBody());
+                return builder.build();
+            }
+
+            MediaType type = body.contentType();
+            if (type != null)
+                builder.header("content-type", type.toString());
+            HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.ofInputStream(() -> openBody(body));
+            if (length > 0)
+                publisher = HttpRequest.BodyPublishers.fromPublisher(publisher, length);
+            builder.method(request.method(), publisher);
+            return builder.build();
+        }
+
+        // Called by the http client each time it sends the body, the body is written on the upload pool while the client reads it
+        private InputStream openBody(RequestBody body) {
+            Pipe pipe = new Pipe(PIPE_SIZE);
+            Pipe previous = this.pipe;
+            this.pipe = pipe;
+            if (previous != null)
+                previous.cancel();
+            if (done)
+                pipe.cancel();
+
+            ThreadPools.getUploadPool().execute(() -> {
+                BufferedSink sink = Okio.buffer(pipe.sink());
+                try {
+                    body.writeTo(sink);
+                    sink.close();
+                }
+                catch (IOException | RuntimeException ex) {
+                    pipe.cancel(); // fails the upload instead of sending a truncated body
+                }
+            });
+            return Okio.buffer(pipe.source()).inputStream();
+        }
+    }
+
+    private static long getContentLength(RequestBody body) {
+        try {
+            return body == null ? 0 : body.contentLength();
+        }
+        catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    private static IOException toIOException(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IOException)
+            return (IOException) cause;
+        if (cause instanceof CancellationException)
+            return new IOException("Canceled", cause);
+        return new IOException(cause);
+    }
+}
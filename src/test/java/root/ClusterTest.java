@@ -0,0 +1,327 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package root;
+
+import club.minnced.discord.webhook.BroadcastResult;
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookClientBuilder;
+import club.minnced.discord.webhook.WebhookCluster;
+import club.minnced.discord.webhook.exception.HttpException;
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import club.minnced.discord.webhook.send.AttachmentProcessor;
+import club.minnced.discord.webhook.send.WebhookMessage;
+import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import club.minnced.discord.webhook.util.ThreadPools;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+public class ClusterTest {
+    private WebhookCluster cluster;
+    private WebhookClient first, second, third;
+
+    @Before
+    public void setup() {
+        cluster = new WebhookCluster();
+        OkHttpClient httpClient = mock(OkHttpClient.class);
+        first = new WebhookClientBuilder(1, "token").setHttpClient(httpClient).build();
+        second = new WebhookClientBuilder(2, "token").setHttpClient(httpClient).build();
+        third = new WebhookClientBuilder(3, "token").setHttpClient(httpClient).build();
+    }
+
+    @After
+    public void cleanup() {
+        cluster.close();
+        first.close();
+        second.close();
+        third.close();
+    }
+
+    @Test
+    public void indexById() {
+        cluster.addWebhooks(first, second);
+        Assert.assertEquals(Collections.singletonList(first), cluster.getWebhooksById(1));
+        Assert.assertTrue(cluster.getWebhooksById(3).isEmpty());
+
+        Assert.assertEquals(Collections.singletonList(second), cluster.removeWebhooksById(2));
+        Assert.assertTrue(cluster.getWebhooksById(2).isEmpty());
+        Assert.assertEquals(Collections.singletonList(first), cluster.getWebhooks());
+    }
+
+    @Test
+    public void indexByTag() {
+        cluster.addWebhook(first, "guild:1", "logs")
+               .addWebhook(second, "guild:1")
+               .addWebhook(third);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList(first, second)), new HashSet<>(cluster.getWebhooksByTag("guild:1")));
+        Assert.assertEquals(Collections.singletonList(first), cluster.getWebhooksByTag("logs"));
+        Assert.assertTrue(cluster.getWebhooksByTag("unknown").isEmpty());
+
+        cluster.tagWebhook(third, "logs");
+        cluster.untagWebhook(first, "logs");
+        Assert.assertEquals(Collections.singletonList(third), cluster.getWebhooksByTag("logs"));
+        Assert.assertEquals(Collections.singleton("guild:1"), cluster.getTags(first));
+
+        cluster.removeWebhooks(second);
+        Assert.assertEquals(Collections.singletonList(first), cluster.getWebhooksByTag("guild:1"));
+        Assert.assertTrue(cluster.getTags(second).isEmpty());
+    }
+
+    @Test
+    public void tagUnknownWebhook() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> cluster.tagWebhook(first, "tag"));
+    }
+
+    @Test
+    public void shardAssignment() {
+        Assert.assertEquals(-1, cluster.getShardId(1));
+        cluster.setShardCount(4);
+        int[] counts = new int[4];
+        for (long id = 0; id < 1000; id++) {
+            int shard = cluster.getShardId(id << 22);
+            Assert.assertEquals(shard, cluster.getShardId(id << 22));
+            counts[shard]++;
+        }
+        for (int count : counts)
+            Assert.assertTrue("Shard is not used", count > 0);
+
+        cluster.buildWebhook(1, "token");
+        Assert.assertThrows(IllegalStateException.class, () -> cluster.setShardCount(2));
+        cluster.close();
+        cluster.setShardCount(2);
+    }
+
+    @Test
+    public void shardPoolReferences() throws InterruptedException {
+        ThreadPools.ShardPool shard = ThreadPools.getShardPool(0, 1, null, true);
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(5, 1, TimeUnit.SECONDS);
+        WebhookClient a = new WebhookClientBuilder(1, "token").setTransport(transport).setExecutorService(shard).build();
+        WebhookClient b = new WebhookClientBuilder(2, "token").setTransport(transport).setExecutorService(shard).build();
+
+        a.close();
+        a.close();
+        Assert.assertFalse(shard.isShutdown());
+        b.send("Hello").join();
+        shard.release(); // the reference of the creator, like a closed cluster
+        Assert.assertFalse(shard.isShutdown());
+        b.close();
+        Assert.assertTrue(shard.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertFalse(shard.retain());
+    }
+
+    @Test
+    public void slowWebhookDoesNotBlockShard() throws Exception {
+        ThreadPools.ShardPool shard = ThreadPools.getShardPool(0, 1, null, true);
+        LoopbackTransport loopback = LoopbackTransport.emulateDiscord(5, 1, TimeUnit.SECONDS);
+        CompletableFuture<Void> slowResponse = new CompletableFuture<>();
+        WebhookTransport transport = request -> new WebhookTransport.Exchange() {
+            @Override
+            public Response execute() {
+                throw new AssertionError("The shard must not block on a request");
+            }
+
+            @Override
+            public CompletableFuture<Response> executeAsync() {
+                if (request.url().pathSegments().contains("1"))
+                    return slowResponse.thenCompose(v -> loopback.newExchange(request).executeAsync());
+                return loopback.newExchange(request).executeAsync();
+            }
+
+            @Override
+            public void cancel() {}
+        };
+        WebhookClient slow = new WebhookClientBuilder(1, "token").setTransport(transport).setExecutorService(shard).build();
+        WebhookClient fast = new WebhookClientBuilder(2, "token").setTransport(transport).setExecutorService(shard).build();
+
+        CompletableFuture<ReadonlyMessage> pending = slow.send("Slow");
+        Assert.assertEquals("Fast", fast.send("Fast").get(5, TimeUnit.SECONDS).getContent());
+        Assert.assertFalse(pending.isDone());
+        slowResponse.complete(null);
+        Assert.assertEquals("Slow", pending.get(5, TimeUnit.SECONDS).getContent());
+
+        slow.close();
+        fast.close();
+        shard.release();
+        Assert.assertTrue(shard.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void removedWebhookReleasesCluster() throws InterruptedException {
+        WeakReference<WebhookCluster> removed = addAndRemove(first);
+        for (int i = 0; i < 50 && removed.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assert.assertNull(removed.get());
+    }
+
+    @Test
+    public void evictDeadWebhook() throws InterruptedException {
+        LoopbackTransport unknownWebhook = new LoopbackTransport(request ->
+                LoopbackTransport.newResponse(request, 404, "{\"message\":\"Unknown Webhook\",\"code\":10015}").build());
+        WebhookClient dead = new WebhookClientBuilder(4, "token").setTransport(unknownWebhook).build();
+        dead.setErrorHandler((c, message, error) -> {});
+        cluster.setEvictDeadWebhooks(true).addWebhooks(first, dead);
+
+        Assert.assertThrows(CompletionException.class, () -> dead.send("Hello").join());
+        Assert.assertTrue(dead.isDead());
+        for (int i = 0; i < 100 && cluster.getWebhooks().size() > 1; i++)
+            Thread.sleep(10);
+        Assert.assertEquals(Collections.singletonList(first), cluster.getWebhooks());
+        Assert.assertTrue(dead.isShutdown());
+    }
+
+    @Test
+    public void multicastResult() throws Exception {
+        LoopbackTransport.Handler discord = new LoopbackTransport.DiscordEmulator(100, 1, TimeUnit.SECONDS);
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            long id = Long.parseLong(request.url().pathSegments().get(3));
+            if (id == 3)
+                sleep(100);
+            return id % 2 == 0
+                    ? LoopbackTransport.newResponse(request, 404, "{\"message\":\"Unknown Message\",\"code\":10008}").build()
+                    : discord.handle(request);
+        });
+        for (long id = 1; id <= 5; id++) {
+            WebhookClient client = new WebhookClientBuilder(id, "token").setTransport(transport).build();
+            client.setErrorHandler((c, message, error) -> {});
+            cluster.addWebhooks(client);
+        }
+
+        BroadcastResult result = cluster.multicastWithResult(client -> client.getId() != 5, new WebhookMessageBuilder().setContent("Hello").build());
+        Assert.assertEquals(4, result.size());
+        Assert.assertSame(result, result.whenDone().get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(result.isDone());
+        Assert.assertEquals(2, result.getSuccessCount());
+        Assert.assertEquals(2, result.getFailureCount());
+
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < result.size(); i++) {
+            long id = result.getTarget(i).getId();
+            long latency = result.getLatency(i, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(latency >= 0);
+            if (id % 2 == 0) {
+                Assert.assertNull(result.getMessage(i));
+                Assert.assertTrue(result.getFailure(i) instanceof HttpException);
+                Assert.assertEquals(404, ((HttpException) result.getFailure(i)).getCode());
+            }
+            else {
+                Assert.assertNull(result.getFailure(i));
+                Assert.assertEquals(id, result.getMessage(i).getAuthor().getId());
+            }
+            if (id == 3)
+                Assert.assertTrue(latency >= 100);
+            else
+                fastest = Math.min(fastest, latency);
+        }
+        Assert.assertTrue(fastest < 100);
+    }
+
+    @Test
+    public void broadcastWhileAdding() throws Exception {
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(1000, 1, TimeUnit.SECONDS);
+        cluster.addWebhooks(new WebhookClientBuilder(1, "token").setTransport(transport).build());
+        Thread adder = new Thread(() -> {
+            for (long id = 2; id <= 50; id++)
+                cluster.addWebhooks(new WebhookClientBuilder(id, "token").setTransport(transport).build());
+        });
+        adder.start();
+
+        List<BroadcastResult> results = new ArrayList<>();
+        while (adder.isAlive())
+            results.add(cluster.broadcastWithResult(new WebhookMessageBuilder().setContent("Hello").build()));
+        adder.join();
+        results.add(cluster.broadcastWithResult(new WebhookMessageBuilder().setContent("Hello").build()));
+
+        for (BroadcastResult result : results) {
+            result.whenDone().get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(result.size(), result.getFutures().size());
+            Assert.assertEquals(result.size(), result.getSuccessCount());
+            Assert.assertEquals(result.size(), new HashSet<>(result.getTargets()).size());
+            for (int i = 0; i < result.size(); i++) // the futures stay aligned with their targets
+                Assert.assertEquals(result.getTarget(i).getId(), result.getMessage(i).getAuthor().getId());
+        }
+        Assert.assertEquals(50, results.get(results.size() - 1).size());
+    }
+
+    @Test
+    public void attachmentProcessorPerClient() {
+        LoopbackTransport discord = LoopbackTransport.emulateDiscord(50, 1, TimeUnit.SECONDS);
+        Map<Long, List<String>> uploads = new ConcurrentHashMap<>();
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            Buffer buffer = new Buffer();
+            request.body().writeTo(buffer);
+            long id = Long.parseLong(request.url().pathSegments().get(3));
+            uploads.computeIfAbsent(id, k -> Collections.synchronizedList(new ArrayList<>())).add(buffer.readUtf8());
+            return discord.newExchange(request).execute();
+        });
+        cluster.addWebhooks(
+                new WebhookClientBuilder(1, "token").setTransport(transport).setAttachmentProcessor(AttachmentProcessor.DEFAULT).build(),
+                new WebhookClientBuilder(2, "token").setTransport(transport).build());
+        byte[] log = String.join("\n", Collections.nCopies(2000, "INFO Handled request")).getBytes(StandardCharsets.UTF_8);
+        WebhookMessage message = new WebhookMessageBuilder().addFile("server.log", log).build();
+
+        CompletableFuture.allOf(cluster.multicast(client -> true, message).toArray(new CompletableFuture<?>[0])).join();
+        cluster.broadcastWithResult(message).whenDone().join();
+        Assert.assertEquals(2, uploads.get(1L).size());
+        Assert.assertEquals(2, uploads.get(2L).size());
+        for (String upload : uploads.get(1L))
+            Assert.assertTrue(upload.contains("filename=\"server.log.gz\""));
+        for (String upload : uploads.get(2L)) // each client uploads its own data set
+            Assert.assertTrue(upload.contains("filename=\"server.log\"") && upload.length() > log.length);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static WeakReference<WebhookCluster> addAndRemove(WebhookClient client) {
+        WebhookCluster cluster = new WebhookCluster();
+        for (int i = 0; i < 3; i++) {
+            cluster.addWebhooks(client);
+            cluster.removeWebhooks(client);
+        }
+        return new WeakReference<>(cluster);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package root;
+
+import club.minnced.discord.webhook.WebhookClientBuilder;
+import club.minnced.discord.webhook.external.D4JWebhookClient;
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+import discord4j.core.spec.MessageCreateSpec;
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class D4JClientTest {
+    @Test
+    public void sendManyBackpressure() {
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(100, 1, TimeUnit.SECONDS);
+        try (D4JWebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).buildD4J()) {
+            AtomicLong maxRequested = new AtomicLong();
+            Flux<MessageCreateSpec> specs = Flux.range(0, 20)
+                    .doOnRequest(n -> maxRequested.accumulateAndGet(n, Math::max))
+                    .map(i -> MessageCreateSpec.builder().content("Message " + i).build());
+
+            List<ReadonlyMessage> messages = client.sendMany(specs, 3).collectList().block();
+            Assert.assertNotNull(messages);
+            Assert.assertEquals(20, messages.size());
+            for (int i = 0; i < messages.size(); i++)
+                Assert.assertEquals("Message " + i, messages.get(i).getContent());
+            Assert.assertTrue("Upstream requested " + maxRequested.get(), maxRequested.get() <= 3);
+        }
+    }
+}
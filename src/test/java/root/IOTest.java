@@ -24,6 +24,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class IOTest {
@@ -57,4 +61,27 @@ public class IOTest {
         String content = new String(IOUtil.readAllBytes(new FileInputStream(tempFile)));
         Assert.assertEquals(CONTENT, content);
     }
+
+    @Test
+    public void flipFutureKeepsOrder() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            futures.add(new CompletableFuture<>());
+        CompletableFuture<List<Integer>> flipped = IOUtil.flipFuture(futures);
+        for (int i = futures.size() - 1; i >= 0; i--) {
+            Assert.assertFalse(flipped.isDone());
+            futures.get(i).complete(i);
+        }
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3), flipped.join());
+    }
+
+    @Test
+    public void flipFutureFailure() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        futures.add(CompletableFuture.completedFuture(1));
+        futures.add(new CompletableFuture<>());
+        CompletableFuture<List<Integer>> flipped = IOUtil.flipFuture(futures);
+        futures.get(1).completeExceptionally(new IllegalStateException());
+        Assert.assertTrue(flipped.isCompletedExceptionally());
+    }
 }
@@ -184,7 +184,11 @@ public class IOTestUtil {
 
         @Override
         public void enqueue(Callback responseCallback) {
-
+            try {
+                responseCallback.onResponse(this, execute());
+            } catch (IOException e) {
+                responseCallback.onFailure(this, e);
+            }
         }
 
         @Override
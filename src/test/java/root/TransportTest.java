@@ -0,0 +1,660 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package root;
+
+import club.minnced.discord.webhook.BatchResult;
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookClientBuilder;
+import club.minnced.discord.webhook.exception.HttpException;
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import club.minnced.discord.webhook.send.AttachmentProcessor;
+import club.minnced.discord.webhook.send.MessageAttachment;
+import club.minnced.discord.webhook.send.WebhookMessage;
+import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import club.minnced.discord.webhook.util.RetryPolicy;
+import club.minnced.discord.webhook.util.VirtualClock;
+import club.minnced.discord.webhook.util.WebhookEventListener;
+import okio.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransportTest {
+    @Test
+    public void loopbackRateLimit() {
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(5, 1, TimeUnit.SECONDS);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build()) {
+            Assert.assertSame(transport, client.getTransport());
+            List<CompletableFuture<ReadonlyMessage>> futures = new ArrayList<>();
+            for (int i = 0; i < 7; i++)
+                futures.add(client.send("Message " + i));
+
+            for (int i = 0; i < futures.size(); i++) {
+                ReadonlyMessage message = futures.get(i).join();
+                Assert.assertEquals("Message " + i, message.getContent());
+                Assert.assertEquals(1, message.getAuthor().getId());
+            }
+        }
+    }
+
+    @Test
+    public void loopbackFailure() {
+        LoopbackTransport transport = new LoopbackTransport(request -> LoopbackTransport.newResponse(request, 404, "{\"code\":10015}").build());
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build()) {
+            client.setErrorHandler((c, message, error) -> {});
+            CompletionException ex = Assert.assertThrows(CompletionException.class, () -> client.send("Hello").join());
+            Assert.assertTrue(ex.getCause() instanceof HttpException);
+            Assert.assertEquals(404, ((HttpException) ex.getCause()).getCode());
+        }
+    }
+
+    @Test
+    public void batchDelete() {
+        LoopbackTransport discord = LoopbackTransport.emulateDiscord(5, 1, TimeUnit.SECONDS);
+        LoopbackTransport transport = new LoopbackTransport(request ->
+                request.url().encodedPath().endsWith("/messages/3")
+                        ? LoopbackTransport.newResponse(request, 404, "{\"code\":10008}").build()
+                        : discord.newExchange(request).execute());
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build()) {
+            client.setErrorHandler((c, message, error) -> {});
+            BatchResult result = client.deleteAll(1, 2, 3, 4, 5, 6, 7);
+            Assert.assertSame(result, result.whenDone().join());
+            Assert.assertEquals(6, result.getSuccessCount());
+            Assert.assertEquals(1, result.getFailureCount());
+            Assert.assertArrayEquals(new long[]{3}, result.getFailedIds());
+            Assert.assertTrue(result.getFailure(2) instanceof HttpException);
+            Assert.assertTrue(result.isSuccess(6));
+        }
+    }
+
+    @Test
+    public void batchEdit() {
+        LoopbackTransport discord = LoopbackTransport.emulateDiscord(5, 1, TimeUnit.SECONDS);
+        LoopbackTransport transport = new LoopbackTransport(request ->
+                request.url().encodedPath().endsWith("/messages/2") || request.url().encodedPath().endsWith("/messages/5")
+                        ? LoopbackTransport.newResponse(request, 404, "{\"code\":10008}").build()
+                        : discord.newExchange(request).execute());
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build()) {
+            client.setErrorHandler((c, message, error) -> {});
+            Map<Long, WebhookMessage> edits = new LinkedHashMap<>();
+            for (long id = 1; id <= 7; id++)
+                edits.put(id, new WebhookMessageBuilder().setContent("Edit " + id).build());
+            BatchResult result = client.editAll(edits);
+            Assert.assertSame(result, result.whenDone().join());
+            Assert.assertEquals(5, result.getSuccessCount());
+            Assert.assertEquals(2, result.getFailureCount());
+            Assert.assertArrayEquals(new long[]{2, 5}, result.getFailedIds());
+            for (int i = 0; i < result.size(); i++) {
+                long id = result.getId(i);
+                if (id == 2 || id == 5) {
+                    Assert.assertFalse(result.isSuccess(i));
+                    Assert.assertNull(result.getMessage(i));
+                    Assert.assertEquals(404, ((HttpException) result.getFailure(i)).getCode());
+                }
+                else {
+                    Assert.assertTrue(result.isSuccess(i));
+                    Assert.assertNull(result.getFailure(i));
+                    Assert.assertEquals("Edit " + id, result.getMessage(i).getContent());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void virtualClockRateLimit() {
+        VirtualClock clock = new VirtualClock();
+        LoopbackTransport transport = new LoopbackTransport(request -> LoopbackTransport.newResponse(request, 204, null)
+                .header("X-RateLimit-Limit", "5")
+                .header("X-RateLimit-Remaining", "0")
+                .header("X-RateLimit-Reset-After", "2")
+                .build());
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setClock(clock).setWait(false).build()) {
+            Assert.assertFalse(client.isRateLimited());
+            client.send("Hello").join();
+            Assert.assertTrue(client.isRateLimited());
+            Assert.assertEquals(2000, client.getRetryAfter());
+
+            clock.advance(1500, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(client.isRateLimited());
+            Assert.assertEquals(500, client.getRetryAfter());
+
+            clock.advance(500, TimeUnit.MILLISECONDS);
+            Assert.assertFalse(client.isRateLimited());
+            Assert.assertEquals(0, client.getRetryAfter());
+        }
+    }
+
+    @Test
+    public void virtualClockDeadline() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            calls.incrementAndGet();
+            started.countDown();
+            awaitUninterruptibly(blocked);
+            return LoopbackTransport.newResponse(request, 204, null).build();
+        });
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setClock(clock).setWait(false).build()) {
+            client.setTimeout(1000);
+            CompletableFuture<ReadonlyMessage> first = client.send("First");
+            CompletableFuture<ReadonlyMessage> second = client.send("Second");
+            started.await();
+            clock.advance(2, TimeUnit.SECONDS);
+            blocked.countDown();
+
+            first.join(); // deadline passed during execution, the response is still delivered
+            CompletionException ex = Assert.assertThrows(CompletionException.class, second::join);
+            Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+            Assert.assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    public void virtualClockBackoff() throws Exception {
+        VirtualClock clock = new VirtualClock();
+        AtomicInteger calls = new AtomicInteger();
+        LoopbackTransport transport = new LoopbackTransport(request -> calls.getAndIncrement() == 0
+                ? LoopbackTransport.newResponse(request, 429, "{\"retry_after\":30,\"global\":false}").header("Retry-After", "30").build()
+                : LoopbackTransport.newResponse(request, 204, null).build());
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setClock(clock).setWait(false).build()) {
+            CompletableFuture<ReadonlyMessage> future = client.send("Hello");
+            while (clock.getPendingTasks() == 0)
+                Thread.sleep(10); // the backoff is scheduled on the clock
+            Assert.assertFalse(future.isDone());
+            Assert.assertEquals(30000, client.getRetryAfter());
+
+            clock.advance(30, TimeUnit.SECONDS);
+            future.get(5, TimeUnit.SECONDS); // far less than the backoff
+            Assert.assertEquals(2, calls.get());
+        }
+    }
+
+    @Test
+    public void noBackoffWithRemainingUses() throws Exception {
+        VirtualClock clock = new VirtualClock();
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(5, 1, TimeUnit.SECONDS);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setClock(clock).build()) {
+            for (int i = 0; i < 3; i++) { // each send starts a new drain while the reset is pending on the clock
+                ReadonlyMessage message = client.send("Message " + i).get(5, TimeUnit.SECONDS);
+                Assert.assertEquals("Message " + i, message.getContent());
+            }
+            Assert.assertFalse(client.isRateLimited());
+            Assert.assertEquals(0, clock.getPendingTasks());
+        }
+    }
+
+    @Test
+    public void timeoutEvictsQueuedRequest() {
+        CountDownLatch blocked = new CountDownLatch(1);
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            awaitUninterruptibly(blocked);
+            return LoopbackTransport.newResponse(request, 204, null).build();
+        });
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setWait(false).build()) {
+            client.setTimeout(50);
+            CompletableFuture<ReadonlyMessage> first = client.send("First");
+            CompletableFuture<ReadonlyMessage> second = client.send("Second");
+
+            // evicted while the first request is still executing
+            CompletionException ex = Assert.assertThrows(CompletionException.class, second::join);
+            Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+            Assert.assertFalse(first.isDone());
+            Assert.assertEquals(1, client.getQueueSize());
+
+            blocked.countDown();
+            first.join();
+        }
+        finally {
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    public void cancelUnlinksAndAborts() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch canceled = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        WebhookTransport transport = request -> new WebhookTransport.Exchange() {
+            @Override
+            public okhttp3.Response execute() throws IOException {
+                calls.incrementAndGet();
+                started.countDown();
+                awaitUninterruptibly(canceled);
+                throw new IOException("Canceled");
+            }
+
+            @Override
+            public void cancel() {
+                canceled.countDown();
+            }
+        };
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setWait(false).build()) {
+            AtomicInteger errors = new AtomicInteger();
+            client.setErrorHandler((c, message, error) -> errors.incrementAndGet());
+            CompletableFuture<ReadonlyMessage> first = client.send("First");
+            CompletableFuture<ReadonlyMessage> second = client.send("Second");
+            started.await();
+
+            Assert.assertEquals(2, client.getQueueSize());
+            second.cancel(true);
+            Assert.assertEquals(1, client.getQueueSize());
+
+            first.cancel(true); // aborts the blocked call
+            Assert.assertTrue(canceled.await(5, TimeUnit.SECONDS));
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (client.getQueueSize() > 0 && System.nanoTime() < end)
+                Thread.sleep(10);
+            Assert.assertEquals(0, client.getQueueSize());
+            Assert.assertEquals(1, calls.get());
+            Assert.assertEquals(0, errors.get());
+        }
+        finally {
+            canceled.countDown();
+        }
+    }
+
+    @Test
+    public void retryInPlace() {
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            okio.Buffer buffer = new okio.Buffer();
+            request.body().writeTo(buffer);
+            String content = new org.json.JSONObject(buffer.readUtf8()).getString("content");
+            executed.add(content);
+            boolean fail = content.equals("First") && executed.size() < 3;
+            return LoopbackTransport.newResponse(request, fail ? 502 : 204, null).build();
+        });
+        RetryPolicy policy = RetryPolicy.DEFAULT.withBackoff(1, 5, TimeUnit.MILLISECONDS);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setRetryPolicy(policy).setWait(false).build()) {
+            AtomicInteger errors = new AtomicInteger();
+            client.setErrorHandler((c, message, error) -> errors.incrementAndGet());
+            CompletableFuture<ReadonlyMessage> first = client.send("First");
+            CompletableFuture<ReadonlyMessage> second = client.send("Second");
+            CompletableFuture.allOf(first, second).join();
+            Assert.assertEquals(Arrays.asList("First", "First", "First", "Second"), executed);
+            Assert.assertEquals(0, errors.get());
+        }
+    }
+
+    @Test
+    public void retryBudget() {
+        AtomicInteger calls = new AtomicInteger();
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            calls.incrementAndGet();
+            return LoopbackTransport.newResponse(request, 503, null).build();
+        });
+        RetryPolicy policy = RetryPolicy.DEFAULT.withBackoff(1, 5, TimeUnit.MILLISECONDS).withBudget(0, 1);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setRetryPolicy(policy).build()) {
+            client.setErrorHandler((c, message, error) -> {});
+            CompletionException ex = Assert.assertThrows(CompletionException.class, () -> client.send("First").join());
+            Assert.assertEquals(503, ((HttpException) ex.getCause()).getCode());
+            Assert.assertEquals(2, calls.get()); // the budget only allows a single retry
+
+            Assert.assertThrows(CompletionException.class, () -> client.send("Second").join());
+            Assert.assertEquals(3, calls.get());
+        }
+    }
+
+    @Test
+    public void deadWebhookFailsFast() {
+        AtomicInteger calls = new AtomicInteger();
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            calls.incrementAndGet();
+            return LoopbackTransport.newResponse(request, 401, "{\"message\":\"401: Unauthorized\",\"code\":0}").build();
+        });
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build()) {
+            client.setErrorHandler((c, message, error) -> {});
+            List<CompletableFuture<ReadonlyMessage>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++)
+                futures.add(client.onThread(i).send("Message " + i));
+
+            for (CompletableFuture<ReadonlyMessage> future : futures) {
+                CompletionException ex = Assert.assertThrows(CompletionException.class, future::join);
+                Assert.assertEquals(401, ((HttpException) ex.getCause()).getCode());
+            }
+            Assert.assertTrue(client.isDead());
+            Assert.assertTrue(client.onThread(1).isDead());
+            Assert.assertEquals(1, calls.get());
+            Assert.assertEquals(0, client.getQueueSize());
+        }
+    }
+
+    @Test
+    public void eventListener() {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        WebhookEventListener listener = new WebhookEventListener() {
+            @Override
+            public void onEnqueue(WebhookClient client, RequestInfo request, long nanos) {
+                events.add("enqueue " + request.getMethod());
+            }
+
+            @Override
+            public void onDequeue(WebhookClient client, RequestInfo request, long nanos) {
+                events.add("dequeue");
+            }
+
+            @Override
+            public void onRequestStart(WebhookClient client, RequestInfo request, long nanos) {
+                events.add("request");
+            }
+
+            @Override
+            public void onResponseHeaders(WebhookClient client, RequestInfo request, int code, long nanos) {
+                events.add("response " + code);
+            }
+
+            @Override
+            public void onParseDone(WebhookClient client, RequestInfo request, long nanos) {
+                events.add("parse");
+            }
+
+            @Override
+            public void onComplete(WebhookClient client, RequestInfo request, Throwable error, long nanos) {
+                events.add("complete " + (error == null));
+            }
+        };
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(5, 1, TimeUnit.SECONDS);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setEventListener(listener).build()) {
+            client.send("Hello").join();
+            Assert.assertEquals(Arrays.asList("enqueue POST", "dequeue", "request", "response 200", "parse", "complete true"), events);
+        }
+    }
+
+    @Test
+    public void singleDrainWithConcurrentProducers() throws InterruptedException {
+        AtomicInteger active = new AtomicInteger(), maxActive = new AtomicInteger();
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.yield();
+            active.decrementAndGet();
+            return LoopbackTransport.newResponse(request, 204, null).build();
+        });
+        ScheduledExecutorService pool = Executors.newScheduledThreadPool(4);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setExecutorService(pool).setWait(false).build()) {
+            List<CompletableFuture<ReadonlyMessage>> futures = new CopyOnWriteArrayList<>();
+            ExecutorService producers = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 8; i++) {
+                producers.execute(() -> {
+                    for (int j = 0; j < 25; j++)
+                        futures.add(client.send("Hello"));
+                });
+            }
+            producers.shutdown();
+            Assert.assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            Assert.assertEquals(200, futures.size());
+            Assert.assertEquals(1, maxActive.get());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shutdownExecutorFailsSend() throws Exception {
+        // the drain is executed right away, or scheduled after the reset once the bucket is exhausted
+        for (int limit : new int[] { 5, 1 }) {
+            LoopbackTransport transport = LoopbackTransport.emulateDiscord(limit, 1, TimeUnit.SECONDS);
+            ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+            try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setExecutorService(pool).build()) {
+                client.send("Before").get(5, TimeUnit.SECONDS);
+                Assert.assertEquals(limit == 1, client.isRateLimited());
+                pool.shutdown();
+                Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS)); // the drain of the first send is done, a delayed drain runs after the reset
+
+                for (int i = 0; i < 2; i++) { // the drain state is reset, so each send fails instead of hanging
+                    CompletableFuture<ReadonlyMessage> future = client.send("After");
+                    ExecutionException ex = Assert.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                    Assert.assertTrue(ex.getCause() instanceof RejectedExecutionException);
+                }
+                Assert.assertEquals(0, client.getQueueSize());
+            }
+        }
+    }
+
+    @Test
+    public void threadForks() {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            threads.add(String.valueOf(request.url().queryParameter("thread_id")));
+            return LoopbackTransport.newResponse(request, 204, null).build();
+        });
+        WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setWait(false).build();
+        WebhookClient fork = client.onThread(5);
+        Assert.assertSame(fork, client.onThread(5));
+        Assert.assertNotSame(fork, client.onThread(6));
+        Assert.assertEquals(5, fork.getThreadId());
+
+        fork.send("Hello").join();
+        client.send(7, new WebhookMessageBuilder().setContent("Hello").build()).join();
+        client.send("Hello").join();
+        Assert.assertEquals(Arrays.asList("5", "7", "null"), threads);
+
+        client.close();
+        Assert.assertThrows(RejectedExecutionException.class, () -> fork.send("Hello"));
+    }
+
+    @Test
+    public void threadRoundRobin() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            threads.add(String.valueOf(request.url().queryParameter("thread_id")));
+            started.countDown();
+            awaitUninterruptibly(release);
+            return LoopbackTransport.newResponse(request, 204, null).build();
+        });
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setWait(false).build()) {
+            WebhookClient busy = client.onThread(1), quiet = client.onThread(2);
+            List<CompletableFuture<ReadonlyMessage>> futures = new ArrayList<>();
+            futures.add(busy.send("First"));
+            started.await();
+            for (int i = 0; i < 3; i++)
+                futures.add(busy.send("Busy " + i));
+            futures.add(quiet.send("Quiet"));
+            futures.add(client.send("Channel"));
+            release.countDown();
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            Assert.assertEquals(Arrays.asList("1", "2", "null", "1", "1", "1"), threads);
+        }
+        finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void sendSplit() {
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(50, 1, TimeUnit.SECONDS);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build()) {
+            String line = String.join("", Collections.nCopies(99, "x")) + "\n";
+            String content = String.join("", Collections.nCopies(45, line));
+            CompletableFuture<List<ReadonlyMessage>> parts = client.sendSplit(content);
+            CompletableFuture<ReadonlyMessage> after = client.send("After");
+
+            List<ReadonlyMessage> messages = parts.join();
+            Assert.assertEquals(3, messages.size());
+            StringBuilder joined = new StringBuilder();
+            for (ReadonlyMessage message : messages)
+                joined.append(message.getContent()).append('\n');
+            Assert.assertEquals(content, joined.toString());
+            Assert.assertTrue(Long.compareUnsigned(messages.get(2).getId(), after.join().getId()) < 0);
+        }
+    }
+
+    @Test
+    public void attachmentProcessor() {
+        LoopbackTransport discord = LoopbackTransport.emulateDiscord(50, 1, TimeUnit.SECONDS);
+        List<String> uploads = Collections.synchronizedList(new ArrayList<>());
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            Buffer buffer = new Buffer();
+            request.body().writeTo(buffer);
+            uploads.add(buffer.readUtf8());
+            return discord.newExchange(request).execute();
+        });
+        AttachmentProcessor processor = AttachmentProcessor.DEFAULT.withMaxSize(64 << 10);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setAttachmentProcessor(processor).build()) {
+            client.setErrorHandler((c, message, error) -> {});
+            String log = String.join("\n", Collections.nCopies(2000, "INFO Handled request"));
+            byte[] noise = new byte[100 << 10];
+            new Random(0).nextBytes(noise);
+
+            CompletableFuture<ReadonlyMessage> file = client.send(log.getBytes(StandardCharsets.UTF_8), "server.log");
+            CompletableFuture<ReadonlyMessage> after = client.send("After");
+            CompletableFuture<ReadonlyMessage> tooLarge = client.send(noise, "noise.bin");
+
+            Assert.assertTrue(Long.compareUnsigned(file.join().getId(), after.join().getId()) < 0);
+            CompletionException ex = Assert.assertThrows(CompletionException.class, tooLarge::join);
+            Assert.assertTrue(ex.getCause() instanceof IllegalArgumentException);
+            Assert.assertEquals(2, uploads.size()); // the oversized message is never uploaded
+            Assert.assertTrue(uploads.get(0).contains("filename=\"server.log.gz\""));
+            Assert.assertTrue(uploads.get(0).length() < log.length() / 4);
+        }
+    }
+
+    @Test
+    public void editAllAttachmentProcessor() {
+        LoopbackTransport discord = LoopbackTransport.emulateDiscord(50, 1, TimeUnit.SECONDS);
+        List<String> uploads = Collections.synchronizedList(new ArrayList<>());
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            Buffer buffer = new Buffer();
+            request.body().writeTo(buffer);
+            uploads.add(buffer.readUtf8());
+            return discord.newExchange(request).execute();
+        });
+        AttachmentProcessor processor = AttachmentProcessor.DEFAULT.withMaxSize(64 << 10);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setAttachmentProcessor(processor).build()) {
+            client.setErrorHandler((c, message, error) -> {});
+            byte[] log = String.join("\n", Collections.nCopies(2000, "INFO Handled request")).getBytes(StandardCharsets.UTF_8);
+            Map<Long, WebhookMessage> edits = new LinkedHashMap<>();
+            edits.put(1L, new WebhookMessageBuilder().setContent("Edited").build());
+            edits.put(2L, new WebhookMessageBuilder().addFile("server.log", log).build());
+            BatchResult result = client.editAll(edits).whenDone().join();
+            Assert.assertEquals(2, result.getSuccessCount());
+            Assert.assertEquals(2, uploads.size());
+            Assert.assertTrue(uploads.get(1).contains("filename=\"server.log.gz\""));
+
+            // the batch is prepared before the first edit, an oversized attachment fails all of them
+            byte[] noise = new byte[100 << 10];
+            new Random(0).nextBytes(noise);
+            edits.put(2L, new WebhookMessageBuilder().addFile("noise.bin", noise).build());
+            result = client.editAll(edits).whenDone().join();
+            Assert.assertEquals(2, result.getFailureCount());
+            Assert.assertTrue(result.getFailure(0) instanceof IllegalArgumentException);
+            Assert.assertEquals(2, uploads.size());
+        }
+    }
+
+    @Test
+    public void evictedBodyReleased() throws InterruptedException {
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(1, 3, TimeUnit.SECONDS);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build()) {
+            client.send("First").join(); // uses up the bucket, the queue backs off
+            List<CompletableFuture<ReadonlyMessage>> futures = new ArrayList<>();
+            WeakReference<byte[]> data = sendFile(client, futures);
+            futures.get(0).cancel(true);
+
+            for (int i = 0; i < 50 && data.get() != null; i++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            Assert.assertTrue(client.isRateLimited());
+            Assert.assertEquals(0, client.getQueueSize());
+            Assert.assertNull(data.get());
+        }
+    }
+
+    // Keeps the data out of the frame of the test, so only the queued request can retain it
+    private static WeakReference<byte[]> sendFile(WebhookClient client, List<CompletableFuture<ReadonlyMessage>> futures) {
+        byte[] data = new byte[1 << 20];
+        futures.add(client.send(data, "data.bin"));
+        return new WeakReference<>(data);
+    }
+
+    @Test
+    public void hangingAttachment() throws Exception {
+        CountDownLatch timedOut = new CountDownLatch(1), shutdown = new CountDownLatch(1);
+        Semaphore entered = new Semaphore(0);
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(50, 1, TimeUnit.SECONDS);
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setExecutorService(pool)
+                .setAttachmentProcessor(AttachmentProcessor.DEFAULT).build()) {
+            client.setErrorHandler((c, message, error) -> {});
+            // the deadline of the parked head resumes the queue
+            client.setTimeout(200);
+            CompletableFuture<ReadonlyMessage> file = client.send(new WebhookMessageBuilder().addFile("stuck.txt", hang(entered, timedOut)).build());
+            client.setTimeout(0);
+            CompletableFuture<ReadonlyMessage> after = client.send("After");
+            Assert.assertEquals("After", after.get(5, TimeUnit.SECONDS).getContent());
+            CompletionException ex = Assert.assertThrows(CompletionException.class, file::join);
+            Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+            timedOut.countDown();
+
+            // the queue fails instead of hanging, if the executor is shut down while the drain is parked
+            CompletableFuture<ReadonlyMessage> parked = client.send(new WebhookMessageBuilder().addFile("stuck.txt", hang(entered, shutdown)).build());
+            CompletableFuture<ReadonlyMessage> queued = client.send("Queued");
+            entered.acquire(2);
+            while (pool.getActiveCount() > 0 || !pool.getQueue().isEmpty())
+                Thread.sleep(10); // the drain parks on the preparation
+            pool.shutdown();
+            shutdown.countDown();
+            ExecutionException failure = Assert.assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(failure.getCause() instanceof RejectedExecutionException);
+            Assert.assertTrue(parked.isCompletedExceptionally());
+        }
+        finally {
+            timedOut.countDown();
+            shutdown.countDown();
+        }
+    }
+
+    private static MessageAttachment.StreamSupplier hang(Semaphore entered, CountDownLatch release) {
+        return () -> {
+            entered.release();
+            awaitUninterruptibly(release);
+            return new ByteArrayInputStream(new byte[16]);
+        };
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
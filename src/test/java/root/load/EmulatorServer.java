@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package root.load;
+
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+import club.minnced.discord.webhook.transport.OkHttpTransport;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local HTTP server in front of a {@link LoopbackTransport.DiscordEmulator}.
+ *
+ * <p>The emulator answers the requests, the server only adds what a real connection does on top:
+ * responses can be delayed by a random latency and are gzip encoded if the client accepts it.
+ *
+ * <p>Clients are pointed at the server with {@link #newTransport()}, which rewrites the discord urls to the local server.
+ */
+public class EmulatorServer implements AutoCloseable {
+    private final LoopbackTransport.DiscordEmulator emulator;
+
+    private long minLatency, maxLatency;
+    private boolean gzip = true;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public EmulatorServer(LoopbackTransport.DiscordEmulator emulator) {
+        this.emulator = emulator;
+    }
+
+    public LoopbackTransport.DiscordEmulator getEmulator() {
+        return emulator;
+    }
+
+    public EmulatorServer setLatency(long min, long max, TimeUnit unit) {
+        this.minLatency = unit.toMillis(min);
+        this.maxLatency = Math.max(minLatency, unit.toMillis(max));
+        return this;
+    }
+
+    public EmulatorServer setGzip(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
+
+    public synchronized EmulatorServer start() throws IOException {
+        if (server != null)
+            return this;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "EmulatorServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates a transport which sends all requests to this server instead of discord.
+     *
+     * @return The transport
+     */
+    public WebhookTransport newTransport() {
+        int port = getPort();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Request request = chain.request();
+                    HttpUrl url = request.url().newBuilder()
+                            .scheme("http")
+                            .host(InetAddress.getLoopbackAddress().getHostAddress())
+                            .port(port)
+                            .build();
+                    return chain.proceed(request.newBuilder().url(url).build());
+                })
+                .build();
+        return new OkHttpTransport(client);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server == null)
+            return;
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] requestBody = readAll(exchange.getRequestBody());
+            if (maxLatency > 0)
+                Thread.sleep(ThreadLocalRandom.current().nextLong(minLatency, maxLatency + 1));
+
+            try (Response response = emulator.handle(toRequest(exchange, requestBody))) {
+                respond(exchange, response);
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private Request toRequest(HttpExchange exchange, byte[] requestBody) {
+        HttpUrl url = HttpUrl.get("http://" + InetAddress.getLoopbackAddress().getHostAddress() + exchange.getRequestURI());
+        String method = exchange.getRequestMethod();
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        RequestBody body = null;
+        if (!"GET".equals(method) && !"DELETE".equals(method))
+            body = RequestBody.create(requestBody, type == null ? null : MediaType.parse(type));
+        return new Request.Builder().url(url).method(method, body).build();
+    }
+
+    private void respond(HttpExchange exchange, Response response) throws IOException {
+        response.headers().forEach(header -> exchange.getResponseHeaders().add(header.getFirst(), header.getSecond()));
+        ResponseBody responseBody = response.body();
+        byte[] body = responseBody == null ? new byte[0] : responseBody.bytes();
+        if (body.length == 0) {
+            exchange.sendResponseHeaders(response.code(), -1);
+            return;
+        }
+
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (gzip && accept != null && accept.contains("gzip")) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                out.write(body);
+            }
+            body = buffer.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        MediaType type = responseBody.contentType();
+        if (type != null)
+            exchange.getResponseHeaders().add("Content-Type", type.toString());
+        exchange.sendResponseHeaders(response.code(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0)
+            out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package root.load;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookClientBuilder;
+import club.minnced.discord.webhook.WebhookCluster;
+import club.minnced.discord.webhook.send.WebhookMessage;
+import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives webhook clients against an {@link EmulatorServer} and reports throughput, latency and 429 rate.
+ *
+ * <p>Run {@link #main(String[])} to qualify a change at scale, the smoke test only uses a small load.
+ */
+public class LoadGenerator {
+    private final EmulatorServer server;
+    private final LoopbackTransport.DiscordEmulator emulator;
+
+    public LoadGenerator(EmulatorServer server) {
+        this.server = server;
+        this.emulator = server.getEmulator();
+    }
+
+    /**
+     * Sends {@code messages} messages with each of {@code webhooks} independent clients.
+     *
+     * @param  webhooks
+     *         The amount of webhooks
+     * @param  messages
+     *         The amount of messages per webhook
+     *
+     * @return The report
+     */
+    public Report runClients(int webhooks, int messages) {
+        List<WebhookClient> clients = newClients(webhooks);
+        try {
+            Recorder recorder = new Recorder(webhooks * messages);
+            for (int i = 0; i < messages; i++) {
+                for (WebhookClient client : clients) {
+                    long start = System.nanoTime();
+                    recorder.record(start, client.send(newMessage(i)));
+                }
+            }
+            return recorder.await("clients");
+        }
+        finally {
+            clients.forEach(WebhookClient::close);
+        }
+    }
+
+    /**
+     * Broadcasts {@code messages} messages to a cluster of {@code webhooks} clients.
+     *
+     * @param  webhooks
+     *         The amount of webhooks in the cluster
+     * @param  messages
+     *         The amount of broadcasts
+     *
+     * @return The report
+     */
+    public Report runCluster(int webhooks, int messages) {
+        try (WebhookCluster cluster = new WebhookCluster(webhooks)) {
+            cluster.addWebhooks(newClients(webhooks));
+            Recorder recorder = new Recorder(webhooks * messages);
+            for (int i = 0; i < messages; i++) {
+                long start = System.nanoTime();
+                cluster.broadcast(newMessage(i)).forEach(future -> recorder.record(start, future));
+            }
+            return recorder.await("cluster");
+        }
+    }
+
+    private List<WebhookClient> newClients(int webhooks) {
+        List<WebhookClient> clients = new ArrayList<>(webhooks);
+        for (int i = 1; i <= webhooks; i++) {
+            clients.add(new WebhookClientBuilder(i, "token")
+                    .setTransport(server.newTransport())
+                    .setWait(true)
+                    .setDaemon(true)
+                    .build());
+        }
+        return clients;
+    }
+
+    private static WebhookMessage newMessage(int index) {
+        return new WebhookMessageBuilder().setContent("Load " + index).build();
+    }
+
+    private final class Recorder {
+        private final long[] latencies;
+        private final CompletableFuture<?>[] futures;
+        private final AtomicInteger failed = new AtomicInteger();
+        private final long start = System.nanoTime();
+        private final long requests = emulator.getRequests();
+        private final long rateLimited = emulator.getRateLimited();
+        private int count;
+
+        private Recorder(int size) {
+            latencies = new long[size];
+            futures = new CompletableFuture<?>[size];
+        }
+
+        private void record(long start, CompletableFuture<?> future) {
+            int index = count++;
+            futures[index] = future.whenComplete((result, error) -> {
+                latencies[index] = System.nanoTime() - start;
+                if (error != null)
+                    failed.incrementAndGet();
+            });
+        }
+
+        private Report await(String name) {
+            // the latencies are written before the futures complete, the join makes them visible
+            CompletableFuture.allOf(Arrays.copyOf(futures, count)).exceptionally(error -> null).join();
+            long elapsed = System.nanoTime() - start;
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new Report(name, count, failed.get(), elapsed, sorted,
+                    emulator.getRequests() - requests, emulator.getRateLimited() - rateLimited);
+        }
+    }
+
+    public static final class Report {
+        private final String name;
+        private final int messages, failed;
+        private final long elapsedNanos, requests, rateLimited;
+        private final long[] latencies;
+
+        private Report(String name, int messages, int failed, long elapsedNanos, long[] latencies, long requests, long rateLimited) {
+            this.name = name;
+            this.messages = messages;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+            this.requests = requests;
+            this.rateLimited = rateLimited;
+        }
+
+        public int getMessages() {
+            return messages;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getRateLimited() {
+            return rateLimited;
+        }
+
+        public double getThroughput() {
+            return messages / (elapsedNanos / 1e9);
+        }
+
+        public double getRateLimitRate() {
+            return requests == 0 ? 0 : (double) rateLimited / requests;
+        }
+
+        public long getPercentile(double percentile, TimeUnit unit) {
+            if (latencies.length == 0)
+                return 0;
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return unit.convert(latencies[Math.max(0, index)], TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s: %d messages (%d failed) in %d ms, %.1f msg/s, p50 %d ms, p99 %d ms, %d requests, 429 rate %.2f%%",
+                    name, messages, failed, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput(),
+                    getPercentile(50, TimeUnit.MILLISECONDS), getPercentile(99, TimeUnit.MILLISECONDS),
+                    requests, getRateLimitRate() * 100);
+        }
+    }
+
+    /**
+     * Runs the load test with the provided arguments.
+     * <br>Arguments: {@code [webhooks] [messages] [bucket limit] [bucket reset ms] [global limit] [max latency ms]}
+     *
+     * @param  args
+     *         The arguments
+     *
+     * @throws Exception
+     *         If the server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        int webhooks = arg(args, 0, 50);
+        int messages = arg(args, 1, 20);
+        int limit = arg(args, 2, 5);
+        int reset = arg(args, 3, 2000);
+        int global = arg(args, 4, 50);
+        int latency = arg(args, 5, 50);
+        LoopbackTransport.DiscordEmulator emulator = new LoopbackTransport.DiscordEmulator(limit, reset, TimeUnit.MILLISECONDS)
+                .setGlobalLimit(global);
+        try (EmulatorServer server = new EmulatorServer(emulator)
+                .setLatency(latency / 5, latency, TimeUnit.MILLISECONDS)
+                .start()) {
+            LoadGenerator generator = new LoadGenerator(server);
+            System.out.println(generator.runClients(webhooks, messages));
+            System.out.println(generator.runCluster(webhooks, messages));
+        }
+    }
+
+    private static int arg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package root.load;
+
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class LoadSmokeTest {
+    private LoopbackTransport.DiscordEmulator emulator;
+    private EmulatorServer server;
+
+    @Before
+    public void setup() throws IOException {
+        emulator = new LoopbackTransport.DiscordEmulator(5, 1, TimeUnit.SECONDS);
+        server = new EmulatorServer(emulator)
+                .setLatency(1, 5, TimeUnit.MILLISECONDS)
+                .start();
+    }
+
+    @After
+    public void cleanup() {
+        server.close();
+    }
+
+    @Test
+    public void withinLimits() {
+        emulator.setGlobalLimit(1000);
+        LoadGenerator generator = new LoadGenerator(server);
+        LoadGenerator.Report clients = generator.runClients(4, 5);
+        Assert.assertEquals(20, clients.getMessages());
+        Assert.assertEquals(0, clients.getFailed());
+        Assert.assertEquals(0, clients.getRateLimited());
+        Assert.assertEquals(20, clients.getRequests());
+        Assert.assertTrue(clients.getPercentile(50, TimeUnit.NANOSECONDS) <= clients.getPercentile(99, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void globalRateLimit() {
+        emulator.setGlobalLimit(10);
+        LoadGenerator generator = new LoadGenerator(server);
+        LoadGenerator.Report cluster = generator.runCluster(4, 5);
+        Assert.assertEquals(20, cluster.getMessages());
+        Assert.assertEquals(0, cluster.getFailed());
+        Assert.assertTrue(emulator.getGlobalRateLimited() > 0);
+        Assert.assertEquals(cluster.getRequests(), 20 + cluster.getRateLimited());
+        Assert.assertTrue(cluster.getRateLimitRate() > 0);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package root.load;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookClientBuilder;
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the request queue with many producer threads and the single draining consumer.
+ * <br>The requests are answered in memory, so the result is bound by enqueuing and draining rather than the network.
+ *
+ * <p>Arguments: {@code [producers] [messages per producer] [iterations]}
+ */
+public class QueueBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        LoopbackTransport transport = new LoopbackTransport(request -> LoopbackTransport.newResponse(request, 204, null).build());
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).setWait(false).setDaemon(true).build()) {
+            for (int i = 0; i < iterations / 2; i++) // warmup
+                run(client, producers, messages);
+            for (int i = 0; i < iterations; i++) {
+                long nanos = run(client, producers, messages);
+                System.out.printf(Locale.ROOT, "Iteration %d: %.0f ops/s (%d producers)%n",
+                        i + 1, producers * messages / (nanos / 1e9), producers);
+            }
+        }
+    }
+
+    private static long run(WebhookClient client, int producers, int messages) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<?>> last = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            CompletableFuture<Object> done = new CompletableFuture<>();
+            last.add(done);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    CompletableFuture<?> future = null;
+                    for (int j = 0; j < messages; j++)
+                        future = client.send("Benchmark");
+                    future.whenComplete((result, error) -> done.complete(null));
+                }
+                catch (Throwable ex) {
+                    done.completeExceptionally(ex);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        CompletableFuture.allOf(last.toArray(new CompletableFuture<?>[0])).join();
+        return System.nanoTime() - begin;
+    }
+}
@@ -102,6 +102,8 @@ public class ReceiveMessageTest {
         assertEquals("Role mentions are empty", 2, message.getMentionedRoles().size());
 
         assertEquals("Role ids incorrect", Arrays.asList(654L, 321L), message.getMentionedRoles());
+        assertArrayEquals("Role ids incorrect", new long[]{654L, 321L}, message.getMentionedRoleIds());
+        assertArrayEquals("User ids incorrect", new long[]{2222L}, message.getMentionedUserIds());
 
         ReadonlyUser user = message.getMentionedUsers().get(0);
         assertEquals("Username mismatches", "Lucky Winner", user.getName());
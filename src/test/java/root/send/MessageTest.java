@@ -17,10 +17,14 @@
 package root.send;
 
 import club.minnced.discord.webhook.IOUtil;
+import club.minnced.discord.webhook.send.AllowedMentions;
+import club.minnced.discord.webhook.send.MessageAttachment;
+import club.minnced.discord.webhook.send.MessageSplitter;
 import club.minnced.discord.webhook.send.WebhookEmbed;
 import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
 import club.minnced.discord.webhook.send.WebhookMessage;
 import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import discord4j.core.spec.MessageCreateSpec;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Mentions;
 import net.dv8tion.jda.api.entities.Message;
@@ -37,14 +41,19 @@ import org.junit.Before;
 import org.junit.Test;
 import root.IOTestUtil;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Answers.RETURNS_DEFAULTS;
 import static org.powermock.api.mockito.PowerMockito.*;
@@ -139,6 +148,59 @@ public class MessageTest {
         Assert.assertEquals("bird.png", message.getAttachments()[2].getName());
     }
     
+    @Test
+    public void buildMessageWithLazyFile() throws IOException {
+        AtomicInteger opened = new AtomicInteger();
+        byte[] data = "cat".getBytes(StandardCharsets.UTF_8);
+        WebhookMessage message = new WebhookMessageBuilder()
+              .setContent("myContent")
+              .addFile("dog.png", () -> {
+                  opened.incrementAndGet();
+                  return new ByteArrayInputStream(data);
+              })
+              .build();
+
+        MessageAttachment[] attachments = message.getAttachments();
+        Assert.assertNotNull(attachments);
+        Assert.assertEquals("dog.png", attachments[0].getName());
+        Assert.assertFalse(attachments[0].isLoaded());
+        Assert.assertEquals(0, opened.get());
+
+        RequestBody body = message.getBody();
+        Map<String, Object> multiPart = IOTestUtil.parseMultipart(body);
+        Assert.assertArrayEquals(data, ((IOTestUtil.MultiPartFile) multiPart.get("file0")).content);
+        Assert.assertEquals(1, opened.get());
+        IOTestUtil.parseMultipart(body); // retry after a rate-limit writes the body again
+        Assert.assertEquals(1, opened.get());
+        Assert.assertTrue(attachments[0].isLoaded());
+    }
+
+    @Test
+    public void convertedStreamIsNotReused() {
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        MessageCreateSpec spec = MessageCreateSpec.builder().addFile("cat.png", broken).build();
+        RequestBody body = WebhookMessageBuilder.fromD4J(spec).build().getBody();
+
+        try {
+            IOTestUtil.parseMultipart(body);
+            Assert.fail("Expected the broken stream to fail");
+        } catch (IOException ex) {
+            Assert.assertEquals("Connection reset", ex.getMessage());
+        }
+        // A retry must not upload whatever remained of the stream
+        try {
+            IOTestUtil.parseMultipart(body);
+            Assert.fail("Expected the consumed stream to fail");
+        } catch (IOException ex) {
+            Assert.assertEquals("The stream of this attachment has already been consumed", ex.getMessage());
+        }
+    }
+
     @Test
     public void buildMessageWithDataMessage() {
         MessageEmbed jdaEmbed = new EmbedBuilder()
@@ -220,6 +282,122 @@ public class MessageTest {
         Assert.assertThrows(IllegalStateException.class, () -> builder.build());
     }
 
+    @Test
+    public void allowedMentionIds() {
+        AllowedMentions mentions = AllowedMentions.none()
+                .withUserIds(86699011792191488L, 107562988810027008L)
+                .withUsers("86699011792191488")
+                .withRoles(Arrays.asList("2", "1"));
+        Assert.assertArrayEquals(new long[]{86699011792191488L, 107562988810027008L}, mentions.getUserIds());
+        Assert.assertArrayEquals(new long[]{1, 2}, mentions.getRoleIds());
+
+        JSONObject json = new JSONObject(mentions.toJSONString());
+        Assert.assertEquals(Arrays.asList("86699011792191488", "107562988810027008"), json.getJSONArray("users").toList());
+        Assert.assertEquals(Arrays.asList("1", "2"), json.getJSONArray("roles").toList());
+        Assert.assertThrows(NumberFormatException.class, () -> AllowedMentions.none().withUsers("everyone"));
+    }
+
+    @Test
+    public void allowedMentionsSnapshot() throws IOException {
+        AllowedMentions mentions = AllowedMentions.all();
+        mentions.withParseEveryone(false); // modifies the instance, like it always did
+        Assert.assertFalse(mentions.isParseEveryone());
+
+        AllowedMentions snapshot = mentions.snapshot();
+        Assert.assertSame(snapshot, new AllowedMentions().withParseUsers(true).withParseRoles(true).snapshot());
+        Assert.assertSame(snapshot, snapshot.snapshot());
+        Assert.assertEquals(mentions, snapshot);
+        Assert.assertSame(snapshot.toJSONString(), snapshot.toJSONString());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> snapshot.withParseEveryone(true));
+
+        AllowedMentions users = AllowedMentions.none().withUserIds(1L);
+        Assert.assertNotSame(users.snapshot(), users.snapshot());
+        Assert.assertEquals(users.snapshot(), AllowedMentions.none().withUsers("1").snapshot());
+
+        // The message keeps the policy it was built with
+        WebhookMessage message = builder.setContent("@everyone").setAllowedMentions(mentions).build();
+        mentions.withParseEveryone(true);
+        JSONObject json = new JSONObject(IOTestUtil.readRequestBody(message.getBody()));
+        Assert.assertFalse(json.getJSONObject("allowed_mentions").getJSONArray("parse").toList().contains("everyone"));
+    }
+
+    @Test
+    public void splitContent() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 30; i++)
+            content.append("Line ").append(i).append('\n');
+        content.append("```java\n");
+        for (int i = 0; i < 30; i++)
+            content.append("int x").append(i).append(" = ").append(i).append(";\n");
+        content.append("```\nDone");
+
+        List<String> parts = MessageSplitter.splitContent(content, 200);
+        Assert.assertTrue(parts.size() > 3);
+        for (String part : parts) {
+            Assert.assertTrue(part.length() <= 200);
+            Assert.assertEquals("Unbalanced code block in " + part, 0, part.split("```", -1).length % 2 - 1);
+        }
+        Assert.assertTrue(parts.get(0).startsWith("Line 0\nLine 1\n"));
+        Assert.assertEquals("Done", parts.get(parts.size() - 1).substring(parts.get(parts.size() - 1).lastIndexOf('\n') + 1));
+        Assert.assertTrue(parts.stream().skip(1).anyMatch(part -> part.startsWith("```java\nint x")));
+
+        char[] word = new char[50];
+        Arrays.fill(word, 'a');
+        String line = String.join(" ", Collections.nCopies(10, new String(word)));
+        List<String> words = MessageSplitter.splitContent(line, 120);
+        Assert.assertEquals(5, words.size());
+        Assert.assertEquals(line, String.join(" ", words));
+        Assert.assertTrue(MessageSplitter.splitContent(" \n ").isEmpty());
+    }
+
+    @Test
+    public void splitLongFences() {
+        String content = "```" + repeat("a", 2100) + "\n" + repeat("y", 1000) + "\n" + repeat("z", 1500);
+        List<String> parts = assertSplit(content);
+        Assert.assertEquals(3, parts.size());
+        Assert.assertTrue(parts.get(1).startsWith("```\naaa"));
+
+        parts = assertSplit("```" + repeat("a", 2500) + "\nfoo\n");
+        Assert.assertEquals(2, parts.size());
+        Assert.assertTrue(parts.get(1).endsWith("\nfoo\n```"));
+
+        parts = assertSplit(repeat("b", 1990) + " ```java\ncode\n```");
+        Assert.assertEquals(2, parts.size());
+        Assert.assertEquals("```java\ncode\n```", parts.get(1));
+    }
+
+    // Checks the limits and code blocks of each part, and that no content is lost
+    private static List<String> assertSplit(String content) {
+        List<String> parts = MessageSplitter.splitContent(content);
+        StringBuilder letters = new StringBuilder();
+        for (String part : parts) {
+            Assert.assertTrue(part.length() <= WebhookMessage.MAX_CONTENT_LENGTH);
+            Assert.assertEquals("Unbalanced code block in " + part, 0, part.split("```", -1).length % 2 - 1);
+            letters.append(part.replaceAll("[^a-z]", ""));
+        }
+        Assert.assertEquals(content.replaceAll("[^a-z]", ""), letters.toString());
+        return parts;
+    }
+
+    private static String repeat(String text, int count) {
+        return String.join("", Collections.nCopies(count, text));
+    }
+
+    @Test
+    public void splitEmbeds() {
+        List<WebhookEmbed> embeds = new ArrayList<>();
+        for (int i = 0; i < 25; i++)
+            embeds.add(new WebhookEmbedBuilder().setDescription("Embed " + i).build());
+        List<WebhookMessageBuilder> builders = MessageSplitter.split("Hello", embeds);
+        Assert.assertEquals(3, builders.size());
+        WebhookMessage first = builders.get(0).build();
+        Assert.assertEquals("Hello", first.getContent());
+        Assert.assertEquals(10, first.getEmbeds().size());
+        Assert.assertEquals(10, builders.get(1).build().getEmbeds().size());
+        Assert.assertEquals(5, builders.get(2).build().getEmbeds().size());
+        Assert.assertEquals("Embed 24", builders.get(2).build().getEmbeds().get(4).getDescription());
+    }
+
     @Test
     public void checkJSONNonFile() throws IOException {
         JSONObject allowedMentions = new JSONObject()
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package root.flow;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookClientBuilder;
+import club.minnced.discord.webhook.exception.HttpException;
+import club.minnced.discord.webhook.flow.WebhookProcessor;
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import club.minnced.discord.webhook.send.WebhookMessage;
+import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+import okio.Buffer;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+public class WebhookProcessorTest {
+    @Test
+    public void demandStopsAtMaxInFlight() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        LoopbackTransport.Handler discord = new LoopbackTransport.DiscordEmulator(100, 1, TimeUnit.SECONDS);
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            awaitUninterruptibly(blocked);
+            return discord.handle(request);
+        });
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build();
+             WebhookProcessor processor = new WebhookProcessor(client, 3)) {
+            RecordingSubscription upstream = new RecordingSubscription();
+            processor.onSubscribe(upstream);
+            Assert.assertEquals(3, upstream.requested.get());
+
+            for (int i = 0; i < 3; i++)
+                processor.onNext(message("Message " + i));
+            Thread.sleep(200); // nothing completes, no further demand
+            Assert.assertEquals(3, upstream.requested.get());
+            Assert.assertEquals(3, client.getQueueSize());
+
+            blocked.countDown();
+            Assert.assertTrue(awaitCondition(() -> upstream.requested.get() == 6));
+            Assert.assertFalse(upstream.canceled.get());
+        }
+        finally {
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    public void publishesInOrder() throws Exception {
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(100, 1, TimeUnit.SECONDS);
+        SubmissionPublisher<WebhookMessage> upstream = new SubmissionPublisher<>();
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build()) {
+            WebhookProcessor processor = new WebhookProcessor(client, 2);
+            CollectingSubscriber results = new CollectingSubscriber();
+            processor.subscribe(results);
+            upstream.subscribe(processor);
+
+            for (int i = 0; i < 20; i++)
+                upstream.submit(message("Message " + i));
+            upstream.close();
+
+            Assert.assertTrue(results.done.await(10, TimeUnit.SECONDS));
+            Assert.assertNull(results.error);
+            Assert.assertEquals(20, results.messages.size());
+            for (int i = 0; i < 20; i++)
+                Assert.assertEquals("Message " + i, results.messages.get(i).getContent());
+        }
+    }
+
+    @Test
+    public void firstFailureCancelsUpstream() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        LoopbackTransport.Handler discord = new LoopbackTransport.DiscordEmulator(100, 1, TimeUnit.SECONDS);
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            calls.incrementAndGet();
+            return "Message 2".equals(contentOf(request))
+                    ? LoopbackTransport.newResponse(request, 404, "{\"message\":\"Unknown Message\",\"code\":10008}").build()
+                    : discord.handle(request);
+        });
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build();
+             SubmissionPublisher<WebhookMessage> upstream = new SubmissionPublisher<>()) {
+            client.setErrorHandler((c, message, error) -> {});
+            WebhookProcessor processor = new WebhookProcessor(client, 2);
+            CollectingSubscriber results = new CollectingSubscriber();
+            processor.subscribe(results);
+            upstream.subscribe(processor);
+
+            for (int i = 0; i < 20; i++)
+                upstream.submit(message("Message " + i));
+
+            Assert.assertTrue(results.done.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue(results.error instanceof HttpException);
+            Assert.assertEquals(404, ((HttpException) results.error).getCode());
+            Assert.assertTrue(results.messages.size() <= 2); // unconsumed results are dropped by the failure
+            for (int i = 0; i < results.messages.size(); i++)
+                Assert.assertEquals("Message " + i, results.messages.get(i).getContent());
+            Assert.assertTrue(awaitCondition(() -> upstream.getNumberOfSubscribers() == 0));
+            Assert.assertTrue(calls.get() < 20);
+        }
+    }
+
+    @Test
+    public void slowSubscriberDoesNotStallDrain() throws Exception {
+        Set<Thread> clientThreads = ConcurrentHashMap.newKeySet();
+        LoopbackTransport.Handler discord = new LoopbackTransport.DiscordEmulator(100, 1, TimeUnit.SECONDS);
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            clientThreads.add(Thread.currentThread());
+            return discord.handle(request);
+        });
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch received = new CountDownLatch(1);
+        AtomicReference<Thread> subscriberThread = new AtomicReference<>();
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(transport).build();
+             WebhookProcessor processor = new WebhookProcessor(client, 2)) {
+            processor.subscribe(new CollectingSubscriber() {
+                @Override
+                public void onNext(ReadonlyMessage item) {
+                    subscriberThread.set(Thread.currentThread());
+                    received.countDown();
+                    awaitUninterruptibly(blocked); // never returns during the test
+                }
+            });
+            RecordingSubscription upstream = new RecordingSubscription();
+            processor.onSubscribe(upstream);
+            for (int i = 0; i < 2; i++)
+                processor.onNext(message("Message " + i));
+
+            Assert.assertTrue(received.await(5, TimeUnit.SECONDS));
+            // another sender still gets through the queue of the client
+            ReadonlyMessage other = client.send("Other").get(5, TimeUnit.SECONDS);
+            Assert.assertEquals("Other", other.getContent());
+            Assert.assertFalse(clientThreads.contains(subscriberThread.get()));
+        }
+        finally {
+            blocked.countDown();
+        }
+    }
+
+    private static WebhookMessage message(String content) {
+        return new WebhookMessageBuilder().setContent(content).build();
+    }
+
+    private static String contentOf(okhttp3.Request request) throws IOException {
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        return new JSONObject(buffer.readUtf8()).optString("content");
+    }
+
+    private static boolean awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > end)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingSubscription implements Flow.Subscription {
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicBoolean canceled = new AtomicBoolean();
+
+        @Override
+        public void request(long n) {
+            requested.addAndGet(n);
+        }
+
+        @Override
+        public void cancel() {
+            canceled.set(true);
+        }
+    }
+
+    private static class CollectingSubscriber implements Flow.Subscriber<ReadonlyMessage> {
+        private final List<ReadonlyMessage> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ReadonlyMessage item) {
+            messages.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
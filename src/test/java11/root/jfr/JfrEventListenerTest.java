@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package root.jfr;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookClientBuilder;
+import club.minnced.discord.webhook.WebhookCluster;
+import club.minnced.discord.webhook.jfr.JfrEventListener;
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+import club.minnced.discord.webhook.util.VirtualClock;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class JfrEventListenerTest {
+    private static final String SEND = "club.minnced.discord.webhook.Send";
+    private static final String BACKOFF = "club.minnced.discord.webhook.Backoff";
+    private static final String RATE_LIMITED = "club.minnced.discord.webhook.RateLimited";
+    private static final String QUEUE_DEPTH = "club.minnced.discord.webhook.QueueDepth";
+    private static final String BROADCAST = "club.minnced.discord.webhook.Broadcast";
+
+    @Test
+    public void sendAndRateLimitEvents() throws Exception {
+        VirtualClock clock = new VirtualClock();
+        AtomicInteger calls = new AtomicInteger();
+        LoopbackTransport transport = new LoopbackTransport(request -> calls.getAndIncrement() == 0
+                ? LoopbackTransport.newResponse(request, 429, "{\"retry_after\":30,\"global\":false}").header("Retry-After", "30").build()
+                : LoopbackTransport.newResponse(request, 204, null).build());
+        List<RecordedEvent> events;
+        try (WebhookClient client = JfrEventListener.install(new WebhookClientBuilder(1, "token").setTransport(transport).setClock(clock).setWait(false).build());
+             Recording recording = new Recording()) {
+            recording.enable(SEND);
+            recording.enable(BACKOFF);
+            recording.enable(RATE_LIMITED);
+            recording.start();
+
+            CompletableFuture<ReadonlyMessage> future = client.send("Hello");
+            while (clock.getPendingTasks() == 0)
+                Thread.sleep(10); // the backoff is scheduled on the clock
+            clock.advance(30, TimeUnit.SECONDS);
+            future.get(5, TimeUnit.SECONDS);
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        List<RecordedEvent> sends = filter(events, SEND, 1);
+        Assert.assertEquals(2, sends.size());
+        Assert.assertEquals(429, sends.get(0).getInt("statusCode"));
+        Assert.assertEquals(204, sends.get(1).getInt("statusCode"));
+        for (RecordedEvent send : sends) {
+            Assert.assertEquals("POST", send.getString("method"));
+            Assert.assertEquals(0, send.getInt("retries"));
+            Assert.assertFalse(send.getDuration().isNegative());
+        }
+
+        List<RecordedEvent> rateLimits = filter(events, RATE_LIMITED, 1);
+        Assert.assertEquals(1, rateLimits.size());
+        assertAbout(Duration.ofSeconds(30), rateLimits.get(0).getDuration("retryAfter"));
+
+        List<RecordedEvent> backoffs = filter(events, BACKOFF, 1);
+        Assert.assertEquals(1, backoffs.size());
+        assertAbout(Duration.ofSeconds(30), backoffs.get(0).getDuration("plannedDelay"));
+    }
+
+    @Test
+    public void queueDepthEvent() throws Exception {
+        CompletableFuture<Void> blocked = new CompletableFuture<>();
+        LoopbackTransport transport = new LoopbackTransport(request -> {
+            blocked.join();
+            return LoopbackTransport.newResponse(request, 204, null).build();
+        });
+        List<RecordedEvent> events;
+        try (WebhookClient client = JfrEventListener.install(new WebhookClientBuilder(2, "token").setTransport(transport).setWait(false).build());
+             Recording recording = new Recording()) {
+            recording.enable(QUEUE_DEPTH).withPeriod(Duration.ofMillis(50));
+            recording.start();
+
+            client.send("First");
+            client.send("Second");
+            Thread.sleep(500); // a few periods
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+        finally {
+            blocked.complete(null);
+        }
+
+        List<RecordedEvent> samples = filter(events, QUEUE_DEPTH, 2);
+        Assert.assertFalse(samples.isEmpty());
+        RecordedEvent last = samples.get(samples.size() - 1);
+        Assert.assertEquals(2, last.getInt("queueSize"));
+        Assert.assertFalse(last.getBoolean("rateLimited"));
+    }
+
+    @Test
+    public void broadcastEvent() throws Exception {
+        LoopbackTransport transport = LoopbackTransport.emulateDiscord(5, 1, TimeUnit.SECONDS);
+        List<RecordedEvent> events;
+        try (WebhookCluster cluster = JfrEventListener.install(new WebhookCluster());
+             Recording recording = new Recording()) {
+            cluster.addWebhooks(
+                    new WebhookClientBuilder(3, "token").setTransport(transport).build(),
+                    new WebhookClientBuilder(4, "token").setTransport(transport).build());
+            recording.enable(BROADCAST);
+            recording.start();
+
+            CompletableFuture.allOf(cluster.broadcast(new WebhookMessageBuilder().setContent("Message").build()).toArray(new CompletableFuture<?>[0])).join();
+            CompletableFuture.allOf(cluster.broadcast("Content").toArray(new CompletableFuture<?>[0])).join();
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        List<RecordedEvent> broadcasts = events.stream()
+                .filter(event -> event.getEventType().getName().equals(BROADCAST))
+                .collect(Collectors.toList());
+        Assert.assertEquals(2, broadcasts.size());
+        for (RecordedEvent broadcast : broadcasts) {
+            Assert.assertEquals(2, broadcast.getInt("targets"));
+            Assert.assertFalse(broadcast.getDuration("fanOutTime").isNegative());
+        }
+    }
+
+    private static List<RecordedEvent> readEvents(Recording recording) throws IOException {
+        Path file = Files.createTempFile("webhook", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Events of the webhook in commit order, other tests might have left clients which are still sampled
+    private static List<RecordedEvent> filter(List<RecordedEvent> events, String name, long webhookId) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .filter(event -> event.getLong("webhookId") == webhookId)
+                .sorted((a, b) -> a.getEndTime().compareTo(b.getEndTime()))
+                .collect(Collectors.toList());
+    }
+
+    private static void assertAbout(Duration expected, Duration actual) {
+        Assert.assertTrue(actual + " should be close to " + expected,
+                actual.minus(expected).abs().compareTo(Duration.ofSeconds(1)) < 0);
+    }
+}
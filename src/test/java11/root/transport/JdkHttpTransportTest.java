@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018-2020 Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package root.transport;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.WebhookClientBuilder;
+import club.minnced.discord.webhook.receive.ReadonlyMessage;
+import club.minnced.discord.webhook.transport.JdkHttpTransport;
+import club.minnced.discord.webhook.transport.LoopbackTransport;
+import club.minnced.discord.webhook.transport.WebhookTransport;
+import okhttp3.*;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Loopback HTTP/2 server with reactor-netty, which the Discord4J tests already depend on.
+// The JDK client upgrades the plain connection with h2c.
+public class JdkHttpTransportTest {
+    private final LoopbackTransport.DiscordEmulator emulator = new LoopbackTransport.DiscordEmulator(100, 1, TimeUnit.SECONDS);
+    private final List<ByteString> bodies = new CopyOnWriteArrayList<>();
+    private volatile CompletableFuture<Void> delay = CompletableFuture.completedFuture(null);
+    private DisposableServer server;
+    private JdkHttpTransport transport;
+
+    @Before
+    public void setup() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .protocol(HttpProtocol.H2C, HttpProtocol.HTTP11)
+                .httpRequestDecoder(spec -> spec.h2cMaxContentLength(1 << 20)) // the upgrade request carries a body
+                .handle(this::handle)
+                .bindNow();
+        transport = new JdkHttpTransport();
+    }
+
+    @After
+    public void teardown() {
+        server.disposeNow();
+    }
+
+    @Test
+    public void http2() throws Exception {
+        try (Response first = newExchange("POST", "{\"content\":\"First\"}").execute();
+             Response second = newExchange("POST", "{\"content\":\"Second\"}").execute()) {
+            Assert.assertEquals(200, first.code());
+            Assert.assertEquals(Protocol.HTTP_2, first.protocol());
+            Assert.assertEquals(Protocol.HTTP_2, second.protocol());
+            Assert.assertEquals("99", first.header("X-RateLimit-Remaining"));
+            Assert.assertTrue(second.body().string().contains("\"content\":\"Second\""));
+        }
+    }
+
+    @Test
+    public void streamsAttachments() throws Exception {
+        byte[] data = new byte[256 * 1024]; // larger than the pipe, the writer has to wait for the client
+        new Random(42).nextBytes(data);
+        try (WebhookClient client = new WebhookClientBuilder(1, "token").setTransport(this::toServer).build()) {
+            ReadonlyMessage message = client.send(data, "data.bin").get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(1, message.getAuthor().getId());
+        }
+        Assert.assertEquals(1, bodies.size());
+        Assert.assertTrue(bodies.get(0).indexOf(ByteString.of(data)) >= 0);
+    }
+
+    @Test
+    public void executeAsync() throws Exception {
+        delay = new CompletableFuture<>();
+        CompletableFuture<Response> response = newExchange("POST", "{\"content\":\"Hello\"}").executeAsync();
+        Thread.sleep(100);
+        Assert.assertFalse(response.isDone()); // the caller is not blocked while the server delays the response
+
+        delay.complete(null);
+        try (Response done = response.get(10, TimeUnit.SECONDS)) {
+            Assert.assertEquals(200, done.code());
+        }
+    }
+
+    @Test
+    public void cancelFailsResponse() throws Exception {
+        delay = new CompletableFuture<>();
+        WebhookTransport.Exchange exchange = newExchange("POST", "{\"content\":\"Hello\"}");
+        CompletableFuture<Response> response = exchange.executeAsync();
+        exchange.cancel();
+
+        ExecutionException ex = Assert.assertThrows(ExecutionException.class, () -> response.get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(ex.getCause() instanceof IOException);
+        delay.complete(null);
+    }
+
+    private WebhookTransport.Exchange newExchange(String method, String json) {
+        Request request = new Request.Builder()
+                .url("https://discord.com/api/v10/webhooks/1/token?wait=true")
+                .method(method, RequestBody.create(json, MediaType.get("application/json")))
+                .build();
+        return toServer(request);
+    }
+
+    // Rewrites the discord urls to the local server
+    private WebhookTransport.Exchange toServer(Request request) {
+        HttpUrl url = request.url().newBuilder()
+                .scheme("http")
+                .host("127.0.0.1")
+                .port(server.port())
+                .build();
+        return transport.newExchange(request.newBuilder().url(url).build());
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().aggregate().asByteArray()
+                .defaultIfEmpty(new byte[0])
+                .delayUntil(body -> Mono.fromFuture(delay))
+                .flatMap(body -> {
+                    bodies.add(ByteString.of(body));
+                    try (Response emulated = emulator.handle(toRequest(request, body))) {
+                        emulated.headers().forEach(header -> response.header(header.getFirst(), header.getSecond()));
+                        byte[] content = emulated.body().bytes();
+                        return response.status(emulated.code())
+                                .header("content-type", "application/json")
+                                .sendByteArray(Mono.just(content))
+                                .then();
+                    }
+                    catch (IOException ex) {
+                        return Mono.error(ex);
+                    }
+                });
+    }
+
+    private static Request toRequest(HttpServerRequest request, byte[] body) {
+        String type = request.requestHeaders().get("content-type");
+        return new Request.Builder()
+                .url("http://127.0.0.1" + request.uri())
+                .method(request.method().name(), RequestBody.create(body, type == null ? null : MediaType.parse(type)))
+                .build();
+    }
+}